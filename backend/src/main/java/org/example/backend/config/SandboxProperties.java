@@ -0,0 +1,605 @@
+package org.example.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *  沙箱相关的配置，统一放在 application.properties 里的 sandbox.* 下面
+ *  语言相关的配置按 sandbox.languages.<language>.* 区分（python / java）
+ */
+@Component
+@ConfigurationProperties(prefix = "sandbox")
+public class SandboxProperties {
+
+    // 沙箱镜像名称
+    private String image = "my-runner-image:latest";
+
+    // docker 可执行文件，默认直接用 PATH 里的 docker
+    private String dockerBinary = "docker";
+
+    // 后端容器内的临时目录（docker-compose 里把宿主机 ./tempfiles 挂载到这里）
+    private String tempRoot = "/mytemp";
+
+    // 宿主机上 tempfiles 的绝对路径，冷启动 docker run -v 挂载时要用
+    private String hostTempRoot;
+
+    // 容器运行时：engine = 直接调 Docker Engine API（unix socket），cli = fork docker 命令行
+    private String runtime = "engine";
+
+    // 单条容器管理操作（CLI 下的 run -d / cp / inspect / rm 等命令）的超时
+    private long commandTimeoutMs = 30000;
+
+    private Engine engine = new Engine();
+
+    private Pool pool = new Pool();
+
+    private Jobs jobs = new Jobs();
+
+    private Stream stream = new Stream();
+
+    private CompileCache compileCache = new CompileCache();
+
+    private JavaCompiler javaCompiler = new JavaCompiler();
+
+    private Batch batch = new Batch();
+
+    private Workspace workspace = new Workspace();
+
+    private Map<String, Language> languages = new LinkedHashMap<>();
+
+    /**
+     *  取某个语言的配置，没配置的语言就用默认值
+     */
+    public Language language(String language) {
+        Language config = languages.get(language);
+        return config != null ? config : new Language();
+    }
+
+    /**
+     *  Docker Engine API 的配置（sandbox.runtime=engine 时生效）
+     */
+    public static class Engine {
+        // docker-compose 里把宿主机的 docker.sock 挂进了后端容器
+        private String socketPath = "/var/run/docker.sock";
+        // API 版本前缀，留空就用 daemon 的默认版本
+        private String apiVersion = "v1.41";
+        // 最多保留多少条空闲的 keep-alive 连接
+        private int maxIdleConnections = 16;
+
+        public String getSocketPath() {
+            return socketPath;
+        }
+
+        public void setSocketPath(String socketPath) {
+            this.socketPath = socketPath;
+        }
+
+        public String getApiVersion() {
+            return apiVersion;
+        }
+
+        public void setApiVersion(String apiVersion) {
+            this.apiVersion = apiVersion;
+        }
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        public void setMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+    }
+
+    /**
+     *  预热容器池的全局配置
+     */
+    public static class Pool {
+        // 是否启用容器池，不启用就每次 docker run --rm
+        private boolean enabled = false;
+        // 一个容器最多跑多少次用户代码就回收重建
+        private int maxRunsPerContainer = 50;
+        // 池里暂时没有空闲容器时，最多等多久，超时就退回冷启动
+        private long acquireTimeoutMs = 2000;
+        // 后台补充容器的间隔
+        private long refillIntervalMs = 1000;
+        // 空闲容器健康检查的间隔
+        private long healthCheckIntervalMs = 15000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxRunsPerContainer() {
+            return maxRunsPerContainer;
+        }
+
+        public void setMaxRunsPerContainer(int maxRunsPerContainer) {
+            this.maxRunsPerContainer = maxRunsPerContainer;
+        }
+
+        public long getAcquireTimeoutMs() {
+            return acquireTimeoutMs;
+        }
+
+        public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        public long getRefillIntervalMs() {
+            return refillIntervalMs;
+        }
+
+        public void setRefillIntervalMs(long refillIntervalMs) {
+            this.refillIntervalMs = refillIntervalMs;
+        }
+
+        public long getHealthCheckIntervalMs() {
+            return healthCheckIntervalMs;
+        }
+
+        public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+            this.healthCheckIntervalMs = healthCheckIntervalMs;
+        }
+    }
+
+    /**
+     *  异步任务（job）执行器的配置
+     */
+    public static class Jobs {
+        // 同时执行的沙箱数量，<= 0 表示按 CPU 核数
+        private int threads = 0;
+        // 排队任务上限，队列满了直接拒绝（429）
+        private int queueCapacity = 100;
+        // 拒绝时告诉客户端多少秒后重试
+        private int retryAfterSeconds = 2;
+        // 任务结束后结果保留多久，过期就查不到了
+        private long resultTtlMs = 10 * 60 * 1000L;
+        // 长轮询最多挂起多久
+        private long maxWaitMs = 30000;
+
+        /**
+         *  实际的并发数：没配置就用 CPU 核数
+         */
+        public int effectiveThreads() {
+            return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getResultTtlMs() {
+            return resultTtlMs;
+        }
+
+        public void setResultTtlMs(long resultTtlMs) {
+            this.resultTtlMs = resultTtlMs;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+
+    /**
+     *  流式输出（SSE）的配置
+     */
+    public static class Stream {
+        // 每个连接最多缓存多少块输出，满了沙箱读线程就等着（反压到容器的 stdout 管道）
+        private int bufferChunks = 64;
+        // 缓冲区一直满（客户端不读）超过这个时间，就断开这个连接，后面的输出直接丢弃
+        private long stallTimeoutMs = 10000;
+        // 一个 SSE 事件里最多合并多少字符
+        private int maxEventChars = 16384;
+
+        public int getBufferChunks() {
+            return bufferChunks;
+        }
+
+        public void setBufferChunks(int bufferChunks) {
+            this.bufferChunks = bufferChunks;
+        }
+
+        public long getStallTimeoutMs() {
+            return stallTimeoutMs;
+        }
+
+        public void setStallTimeoutMs(long stallTimeoutMs) {
+            this.stallTimeoutMs = stallTimeoutMs;
+        }
+
+        public int getMaxEventChars() {
+            return maxEventChars;
+        }
+
+        public void setMaxEventChars(int maxEventChars) {
+            this.maxEventChars = maxEventChars;
+        }
+    }
+
+    /**
+     *  Java 编译缓存的配置
+     */
+    public static class CompileCache {
+        private boolean enabled = true;
+        // 缓存放在后端容器的本地磁盘上（不要放到共享的 /mytemp）
+        private String dir = "/tmp/online-compiler/compile-cache";
+        // 缓存目录总大小上限，超出按 LRU 淘汰
+        private long maxSizeMb = 256;
+        // 额外的 javac 参数，会参与缓存 key 的计算
+        private String javacOptions = "";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public long getMaxSizeMb() {
+            return maxSizeMb;
+        }
+
+        public void setMaxSizeMb(long maxSizeMb) {
+            this.maxSizeMb = maxSizeMb;
+        }
+
+        public String getJavacOptions() {
+            return javacOptions;
+        }
+
+        public void setJavacOptions(String javacOptions) {
+            this.javacOptions = javacOptions;
+        }
+    }
+
+    /**
+     *  后端内置 Java 编译器（javax.tools）的配置
+     */
+    public static class JavaCompiler {
+        // 关闭后退回在沙箱容器里跑 javac
+        private boolean enabled = true;
+        // 编译目标版本（javac --release），要和沙箱镜像里的 JDK 对得上
+        private int release = 17;
+        // 同时进行的编译数，<= 0 表示按 CPU 核数
+        private int maxConcurrent = 0;
+        // 启动时先编译几次示例代码，让编译器提前被 JIT 预热
+        private int warmupIterations = 5;
+
+        public int effectiveMaxConcurrent() {
+            return maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getRelease() {
+            return release;
+        }
+
+        public void setRelease(int release) {
+            this.release = release;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getWarmupIterations() {
+            return warmupIterations;
+        }
+
+        public void setWarmupIterations(int warmupIterations) {
+            this.warmupIterations = warmupIterations;
+        }
+    }
+
+    /**
+     *  批量执行（POST /run/batch）的配置
+     */
+    public static class Batch {
+        // 一次最多多少个测试用例
+        private int maxCases = 64;
+        // 同一个沙箱里最多同时跑几个用例（共享这个沙箱的 CPU / 内存限制）
+        private int maxParallel = 4;
+
+        public int getMaxCases() {
+            return maxCases;
+        }
+
+        public void setMaxCases(int maxCases) {
+            this.maxCases = maxCases;
+        }
+
+        public int getMaxParallel() {
+            return maxParallel;
+        }
+
+        public void setMaxParallel(int maxParallel) {
+            this.maxParallel = maxParallel;
+        }
+    }
+
+    /**
+     *  工作目录（容器里的 /workspace）怎么送进沙箱
+     */
+    public static class Workspace {
+        // stream = 在内存里打成 tar，从 stdin 送进容器解到 tmpfs 上，后端不落盘；
+        // bind = 写到 temp-root 下的临时目录，冷启动时挂载进容器（老办法，需要 host-temp-root）
+        private String delivery = "stream";
+        // 容器里 /workspace 用的 tmpfs 大小，占容器自己的内存限制；0 表示不挂 tmpfs，直接写容器的可写层
+        private int tmpfsSizeMb = 64;
+
+        public String getDelivery() {
+            return delivery;
+        }
+
+        public void setDelivery(String delivery) {
+            this.delivery = delivery;
+        }
+
+        public int getTmpfsSizeMb() {
+            return tmpfsSizeMb;
+        }
+
+        public void setTmpfsSizeMb(int tmpfsSizeMb) {
+            this.tmpfsSizeMb = tmpfsSizeMb;
+        }
+    }
+
+    /**
+     *  每种语言自己的配置
+     */
+    public static class Language {
+        // 池里至少保持多少个空闲容器
+        private int poolMinSize = 1;
+        // 池里最多多少个容器（空闲 + 正在使用）
+        private int poolMaxSize = 4;
+        // 墙钟时间限制，超时直接杀容器
+        private long timeLimitMs = 10000;
+        // CPU 配额（docker --cpus）
+        private double cpus = 1.0;
+        // 内存上限（docker --memory，同时关掉 swap）
+        private int memoryMb = 256;
+        // 进程/线程数上限（docker --pids-limit），防 fork 炸弹
+        private int pidsLimit = 64;
+        // 最多保留多少字符的输出，超出就截断并杀掉程序
+        private int maxOutputChars = 64 * 1024;
+        // 预热运行时：none / zygote（python）/ cds、resident（java），见 WarmRuntime
+        private String warmRuntime = "none";
+
+        public int getPoolMinSize() {
+            return poolMinSize;
+        }
+
+        public void setPoolMinSize(int poolMinSize) {
+            this.poolMinSize = poolMinSize;
+        }
+
+        public int getPoolMaxSize() {
+            return poolMaxSize;
+        }
+
+        public void setPoolMaxSize(int poolMaxSize) {
+            this.poolMaxSize = poolMaxSize;
+        }
+
+        public long getTimeLimitMs() {
+            return timeLimitMs;
+        }
+
+        public void setTimeLimitMs(long timeLimitMs) {
+            this.timeLimitMs = timeLimitMs;
+        }
+
+        public double getCpus() {
+            return cpus;
+        }
+
+        public void setCpus(double cpus) {
+            this.cpus = cpus;
+        }
+
+        public int getMemoryMb() {
+            return memoryMb;
+        }
+
+        public void setMemoryMb(int memoryMb) {
+            this.memoryMb = memoryMb;
+        }
+
+        public int getPidsLimit() {
+            return pidsLimit;
+        }
+
+        public void setPidsLimit(int pidsLimit) {
+            this.pidsLimit = pidsLimit;
+        }
+
+        public int getMaxOutputChars() {
+            return maxOutputChars;
+        }
+
+        public void setMaxOutputChars(int maxOutputChars) {
+            this.maxOutputChars = maxOutputChars;
+        }
+
+        public String getWarmRuntime() {
+            return warmRuntime;
+        }
+
+        public void setWarmRuntime(String warmRuntime) {
+            this.warmRuntime = warmRuntime;
+        }
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+
+    public String getDockerBinary() {
+        return dockerBinary;
+    }
+
+    public void setDockerBinary(String dockerBinary) {
+        this.dockerBinary = dockerBinary;
+    }
+
+    public String getTempRoot() {
+        return tempRoot;
+    }
+
+    public void setTempRoot(String tempRoot) {
+        this.tempRoot = tempRoot;
+    }
+
+    public String getHostTempRoot() {
+        return hostTempRoot;
+    }
+
+    public void setHostTempRoot(String hostTempRoot) {
+        this.hostTempRoot = hostTempRoot;
+    }
+
+    public String getRuntime() {
+        return runtime;
+    }
+
+    public void setRuntime(String runtime) {
+        this.runtime = runtime;
+    }
+
+    public long getCommandTimeoutMs() {
+        return commandTimeoutMs;
+    }
+
+    public void setCommandTimeoutMs(long commandTimeoutMs) {
+        this.commandTimeoutMs = commandTimeoutMs;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(Jobs jobs) {
+        this.jobs = jobs;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public void setStream(Stream stream) {
+        this.stream = stream;
+    }
+
+    public CompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    public void setCompileCache(CompileCache compileCache) {
+        this.compileCache = compileCache;
+    }
+
+    public JavaCompiler getJavaCompiler() {
+        return javaCompiler;
+    }
+
+    public void setJavaCompiler(JavaCompiler javaCompiler) {
+        this.javaCompiler = javaCompiler;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    public void setWorkspace(Workspace workspace) {
+        this.workspace = workspace;
+    }
+
+    public Map<String, Language> getLanguages() {
+        return languages;
+    }
+
+    public void setLanguages(Map<String, Language> languages) {
+        this.languages = languages;
+    }
+}
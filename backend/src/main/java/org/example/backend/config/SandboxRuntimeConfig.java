@@ -0,0 +1,34 @@
+package org.example.backend.config;
+
+import org.example.backend.runtime.CliSandboxRuntime;
+import org.example.backend.runtime.DockerCli;
+import org.example.backend.runtime.EngineApiSandboxRuntime;
+import org.example.backend.runtime.SandboxRuntime;
+import org.example.backend.runtime.UnixSocketHttpClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ *  按 sandbox.runtime 选择容器运行时
+ */
+@Configuration
+public class SandboxRuntimeConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "sandbox.runtime", havingValue = "engine", matchIfMissing = true)
+    public SandboxRuntime engineApiSandboxRuntime(SandboxProperties properties) {
+        SandboxProperties.Engine engine = properties.getEngine();
+        UnixSocketHttpClient client = new UnixSocketHttpClient(
+                Paths.get(engine.getSocketPath()), engine.getMaxIdleConnections());
+        return new EngineApiSandboxRuntime(client, engine.getApiVersion());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sandbox.runtime", havingValue = "cli")
+    public SandboxRuntime cliSandboxRuntime(DockerCli dockerCli, SandboxProperties properties) {
+        return new CliSandboxRuntime(dockerCli, properties.getCommandTimeoutMs());
+    }
+}
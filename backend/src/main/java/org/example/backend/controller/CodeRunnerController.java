@@ -1,37 +1,108 @@
-package org.example.backend.controller;
-
-import org.example.backend.service.CodeRunnerService;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.*;
-
-import java.util.HashMap;
-import java.util.Map;
-
-@RestController
-//@CrossOrigin(origins = "http://localhost:3000")
-@CrossOrigin(origins = "*")
-public class CodeRunnerController {
-
-    @Autowired
-    private CodeRunnerService codeRunnerService;
-
-    @PostMapping("/run")
-    public Map<String, String> runCode(@RequestBody Map<String, String> request) {
-        // 从 request 中获取 code 和 language
-        String code = request.get("code");
-        String language = request.get("language");
-        // 注意：如果前端没传 language，你可以默认成 "python" 或者做个简单判断
-
-        // 运行代码并得到输出
-        // String output = codeRunnerService.runCode(code, language);
-        // 尝试运行沙箱代码
-        String output = codeRunnerService.runCodeSand(code, language);
-
-        // 返回结果
-        Map<String, String> response = new HashMap<>();
-        response.put("output", output);
-        return response;
-    }
-}
-
-
+package org.example.backend.controller;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.BatchRequest;
+import org.example.backend.model.BatchResult;
+import org.example.backend.model.Job;
+import org.example.backend.model.TestCase;
+import org.example.backend.service.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+//@CrossOrigin(origins = "http://localhost:3000")
+@CrossOrigin(origins = "*")
+public class CodeRunnerController {
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private SandboxProperties properties;
+
+    /**
+     *  同步接口：内部就是提交一个 job 再等它结束
+     *  返回 CompletableFuture，Spring MVC 会走异步请求，等待期间不占用 Tomcat 线程
+     */
+    @PostMapping("/run")
+    public CompletableFuture<Map<String, Object>> runCode(@RequestBody Map<String, String> request) {
+        // 从 request 中获取 code 和 language
+        String code = request.get("code");
+        String language = request.get("language");
+        // 注意：如果前端没传 language，默认成 "python"
+        if (language == null) {
+            language = "python";
+        }
+
+        // 提交到有界执行器，满了会抛 JobRejectedException -> 429
+        // stdin 可选，不传时程序读不到任何输入
+        Job job = jobService.submit(code, language, request.get("stdin"), null);
+
+        // 返回结果
+        // output 之外带上结构化的执行结论：verdict / exitCode / truncated，Java 编译出错时还有 diagnostics
+        return job.getCompletion().thenApply(done -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("output", done.getOutput());
+            response.put("verdict", done.getResult().getVerdict());
+            response.put("exitCode", done.getResult().getExitCode());
+            response.put("truncated", done.getResult().isTruncated());
+            // 编译诊断（Java 后端编译时才有）
+            if (done.getResult().getDiagnostics() != null) {
+                response.put("diagnostics", done.getResult().getDiagnostics());
+            }
+            return response;
+        });
+    }
+
+    /**
+     *  流式接口（Server-Sent Events）：程序输出一边产生一边推给前端
+     *  事件 output: {"chunk": "..."}，结束时事件 exit: {"jobId", "status", "verdict", "exitCode", "truncated"}
+     */
+    @PostMapping("/run/stream")
+    public ResponseEntity<SseEmitter> runCodeStream(@RequestBody Map<String, String> request) {
+        String code = request.get("code");
+        String language = request.get("language");
+        if (language == null) {
+            language = "python";
+        }
+
+        SseEmitter emitter = new SseEmitter();
+        SseOutputListener listener = new SseOutputListener(emitter, properties.getStream());
+        Job job = jobService.submit(code, language, request.get("stdin"), listener);
+        job.getCompletion().thenAccept(listener::finish);
+        listener.start();
+
+        // X-Accel-Buffering: no 让 nginx 不要缓冲 SSE 响应
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    /**
+     *  批量执行：一份代码 + 多个测试用例 {stdin, expectedOutput?, timeLimit}
+     *  编译一次，所有用例在同一个沙箱里跑，返回每个用例的输出、结论、耗时和内存
+     */
+    @PostMapping("/run/batch")
+    public CompletableFuture<BatchResult> runBatch(@RequestBody BatchRequest request) {
+        List<TestCase> cases = request.getCases();
+        if (request.getCode() == null || cases == null || cases.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "code and at least one case are required");
+        }
+        if (cases.size() > properties.getBatch().getMaxCases()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "too many cases, at most " + properties.getBatch().getMaxCases() + " allowed");
+        }
+        String language = request.getLanguage() == null ? "python" : request.getLanguage();
+        return jobService.submitBatch(request.getCode(), language, cases);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.backend.controller;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.Job;
+import org.example.backend.service.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *  异步任务接口
+ *  POST /jobs          提交代码，立刻返回 jobId（202）
+ *  GET  /jobs/{id}     查询状态和结果；带 waitMs 参数时长轮询，任务结束或超时才返回
+ */
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/jobs")
+public class JobController {
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private SandboxProperties properties;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submit(@RequestBody Map<String, String> request) {
+        String language = request.get("language");
+        Job job = jobService.submit(request.get("code"), language == null ? "python" : language,
+                request.get("stdin"), null);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(toResponse(job));
+    }
+
+    @GetMapping("/{id}")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> get(@PathVariable String id,
+                                                                   @RequestParam(defaultValue = "0") long waitMs) {
+        long timeout = Math.min(Math.max(waitMs, 0), properties.getJobs().getMaxWaitMs());
+        Job job = jobService.getJob(id);
+        if (job == null) {
+            DeferredResult<ResponseEntity<Map<String, Object>>> notFound = new DeferredResult<>();
+            notFound.setResult(ResponseEntity.notFound().build());
+            return notFound;
+        }
+        // 超时就返回当前状态（QUEUED / RUNNING），客户端再来轮询
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                new DeferredResult<>(timeout > 0 ? timeout : null, () -> ResponseEntity.ok(toResponse(job)));
+        if (timeout == 0 || job.isDone()) {
+            result.setResult(ResponseEntity.ok(toResponse(job)));
+        } else {
+            job.getCompletion().thenAccept(done -> result.setResult(ResponseEntity.ok(toResponse(done))));
+        }
+        return result;
+    }
+
+    private Map<String, Object> toResponse(Job job) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        if (job.isDone()) {
+            response.put("output", job.getOutput());
+            response.put("verdict", job.getResult().getVerdict());
+            response.put("exitCode", job.getResult().getExitCode());
+            response.put("truncated", job.getResult().isTruncated());
+            // 编译诊断（Java 后端编译时才有）
+            if (job.getResult().getDiagnostics() != null) {
+                response.put("diagnostics", job.getResult().getDiagnostics());
+            }
+        }
+        return response;
+    }
+}
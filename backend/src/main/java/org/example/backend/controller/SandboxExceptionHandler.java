@@ -0,0 +1,30 @@
+package org.example.backend.controller;
+
+import org.example.backend.service.JobRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  统一处理沙箱相关的异常
+ */
+@RestControllerAdvice
+public class SandboxExceptionHandler {
+
+    /**
+     *  执行器满了：429 + Retry-After，让客户端过一会再试
+     */
+    @ExceptionHandler(JobRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleRejected(JobRejectedException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("output", "Error: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+}
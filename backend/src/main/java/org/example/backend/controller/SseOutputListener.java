@@ -0,0 +1,140 @@
+package org.example.backend.controller;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.Job;
+import org.example.backend.service.OutputListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  把沙箱输出通过 SSE 推给客户端
+ *  沙箱读线程把输出块放进一个有界队列（每个连接独立），另一个线程从队列里取出来合并后发送：
+ *  - 客户端读得慢，队列会满，沙箱读线程就阻塞，压力一路传回容器的 stdout 管道，后端不会无限攒输出
+ *  - 队列一直满超过 stallTimeoutMs（客户端基本不读了），就断开连接，后面的输出直接丢弃，不再卡住沙箱
+ *  程序结束后发一个 exit 事件（状态、结论、退出码），然后关闭连接
+ */
+class SseOutputListener implements OutputListener {
+
+    // 发送线程，每个 SSE 连接占一个，连接结束就还回去
+    private static final ExecutorService SENDERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sse-sender-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final SseEmitter emitter;
+    private final SandboxProperties.Stream config;
+    // 元素是 String（输出块）或 Job（结束标记）
+    private final BlockingQueue<Object> queue;
+
+    private volatile boolean closed;
+
+    SseOutputListener(SseEmitter emitter, SandboxProperties.Stream config) {
+        this.emitter = emitter;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getBufferChunks()));
+        emitter.onCompletion(() -> closed = true);
+        emitter.onTimeout(() -> closed = true);
+        emitter.onError(e -> closed = true);
+    }
+
+    void start() {
+        SENDERS.execute(this::sendLoop);
+    }
+
+    @Override
+    public void onOutput(String chunk) {
+        enqueue(chunk);
+    }
+
+    /**
+     *  任务结束，排在所有输出后面发 exit 事件
+     */
+    void finish(Job job) {
+        enqueue(job);
+    }
+
+    private void enqueue(Object item) {
+        if (closed) {
+            return;
+        }
+        try {
+            if (!queue.offer(item, config.getStallTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                // 客户端太久不读，放弃这个连接
+                close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    private void sendLoop() {
+        try {
+            while (!closed) {
+                Object item = queue.poll(1, TimeUnit.SECONDS);
+                if (item == null) {
+                    continue;
+                }
+                if (item instanceof Job) {
+                    sendExit((Job) item);
+                    return;
+                }
+                // 把队列里已经攒着的输出块合并成一个事件，减少事件数量
+                StringBuilder chunk = new StringBuilder((String) item);
+                while (chunk.length() < config.getMaxEventChars() && queue.peek() instanceof String) {
+                    chunk.append((String) queue.poll());
+                }
+                emitter.send(SseEmitter.event()
+                        .name("output")
+                        .data(Collections.singletonMap("chunk", chunk.toString()), MediaType.APPLICATION_JSON));
+            }
+        } catch (Exception e) {
+            // 客户端断开等，直接关掉
+            close();
+        }
+    }
+
+    private void sendExit(Job job) throws Exception {
+        Map<String, Object> trailer = new LinkedHashMap<>();
+        trailer.put("jobId", job.getId());
+        trailer.put("status", job.getStatus());
+        trailer.put("verdict", job.getResult().getVerdict());
+        trailer.put("exitCode", job.getResult().getExitCode());
+        trailer.put("truncated", job.getResult().isTruncated());
+        // 编译诊断（Java 后端编译时才有）
+        if (job.getResult().getDiagnostics() != null) {
+            trailer.put("diagnostics", job.getResult().getDiagnostics());
+        }
+        emitter.send(SseEmitter.event().name("exit").data(trailer, MediaType.APPLICATION_JSON));
+        closed = true;
+        emitter.complete();
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        try {
+            emitter.complete();
+        } catch (Exception ignore) {}
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.backend.model;
+
+import java.util.List;
+
+/**
+ *  POST /run/batch 的请求体：一份代码 + 多个测试用例
+ */
+public class BatchRequest {
+
+    private String code;
+    private String language;
+    private List<TestCase> cases;
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public List<TestCase> getCases() {
+        return cases;
+    }
+
+    public void setCases(List<TestCase> cases) {
+        this.cases = cases;
+    }
+}
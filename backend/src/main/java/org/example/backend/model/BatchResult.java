@@ -0,0 +1,71 @@
+package org.example.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  批量执行的结果
+ *  编译失败时 verdict = COMPILE_ERROR，output / diagnostics 是编译信息，cases 为空；
+ *  后端出错时 verdict = SYSTEM_ERROR，output 是错误信息；否则 verdict = OK，每个用例的结论在 cases 里
+ */
+public class BatchResult {
+
+    private Verdict verdict;
+    // 编译失败时是编译输出，后端出错时是错误信息
+    private String output;
+    private List<CompileDiagnostic> diagnostics;
+    private List<CaseResult> cases = new ArrayList<>();
+    // 结论为 OK 的用例数
+    private int passed;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public List<CompileDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(List<CompileDiagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public List<CaseResult> getCases() {
+        return cases;
+    }
+
+    public void setCases(List<CaseResult> cases) {
+        this.cases = cases;
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public void setPassed(int passed) {
+        this.passed = passed;
+    }
+
+    public int getTotal() {
+        return cases.size();
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.backend.model;
+
+/**
+ *  批量执行里一个测试用例的结果
+ */
+public class CaseResult {
+
+    // 用例在请求里的下标，从 0 开始
+    private int index;
+    private Verdict verdict;
+    private String output;
+    private int exitCode;
+    private boolean truncated;
+    // 墙钟耗时（毫秒）
+    private long timeMs;
+    // 峰值常驻内存（KB），取不到时为 -1
+    private long memoryKb = -1;
+
+    public CaseResult() {
+    }
+
+    public CaseResult(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    public void setTimeMs(long timeMs) {
+        this.timeMs = timeMs;
+    }
+
+    public long getMemoryKb() {
+        return memoryKb;
+    }
+
+    public void setMemoryKb(long memoryKb) {
+        this.memoryKb = memoryKb;
+    }
+}
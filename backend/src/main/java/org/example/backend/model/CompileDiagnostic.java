@@ -0,0 +1,67 @@
+package org.example.backend.model;
+
+/**
+ *  一条编译诊断信息（错误 / 警告）
+ */
+public class CompileDiagnostic {
+
+    // ERROR / WARNING / MANDATORY_WARNING / NOTE / OTHER
+    private String kind;
+    // 源文件名，例如 Main.java
+    private String source;
+    // 行号、列号从 1 开始，没有位置信息时为 -1
+    private long line;
+    private long column;
+    private String message;
+
+    public CompileDiagnostic() {
+    }
+
+    public CompileDiagnostic(String kind, String source, long line, long column, String message) {
+        this.kind = kind;
+        this.source = source;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    public void setColumn(long column) {
+        this.column = column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.backend.model;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *  一次代码执行任务
+ *  POST /jobs 提交后立刻返回 id，执行结果通过 GET /jobs/{id} 查询
+ */
+public class Job {
+
+    private final String id;
+    private final String language;
+    private final String code;
+    // 程序的标准输入，没有时为 null
+    private final String stdin;
+    private final long submittedAt;
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile String output;
+    private volatile RunResult result;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    // 任务结束时 complete，用来做长轮询和同步 /run 的等待
+    private final CompletableFuture<Job> completion = new CompletableFuture<>();
+
+    public Job(String id, String language, String code) {
+        this(id, language, code, null);
+    }
+
+    public Job(String id, String language, String code, String stdin) {
+        this.id = id;
+        this.language = language;
+        this.code = code;
+        this.stdin = stdin;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public void markRunning() {
+        this.startedAt = System.currentTimeMillis();
+        this.status = JobStatus.RUNNING;
+    }
+
+    public void complete(JobStatus status, String output, RunResult result) {
+        this.output = output;
+        this.result = result;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+        completion.complete(this);
+    }
+
+    public boolean isDone() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+    }
+
+    public CompletableFuture<Job> getCompletion() {
+        return completion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getStdin() {
+        return stdin;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public RunResult getResult() {
+        return result;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+}
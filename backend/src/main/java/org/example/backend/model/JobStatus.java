@@ -0,0 +1,15 @@
+package org.example.backend.model;
+
+/**
+ *  异步任务的状态
+ */
+public enum JobStatus {
+    // 已提交，在队列里排队
+    QUEUED,
+    // 正在沙箱里执行
+    RUNNING,
+    // 执行结束（用户代码本身报错也算结束，错误信息在 output 里）
+    COMPLETED,
+    // 后端自身出错，没能拿到结果
+    FAILED
+}
@@ -0,0 +1,63 @@
+package org.example.backend.model;
+
+import java.util.List;
+
+/**
+ *  一次沙箱执行的结构化结果（不含输出本身，输出通过 OutputListener 单独传递）
+ */
+public class RunResult {
+
+    private Verdict verdict;
+    private int exitCode;
+    // 输出是否因为超过上限被截断
+    private boolean truncated;
+    // 编译诊断信息，只有后端编译 Java 时才有
+    private List<CompileDiagnostic> diagnostics;
+
+    public RunResult() {
+    }
+
+    public RunResult(Verdict verdict, int exitCode) {
+        this.verdict = verdict;
+        this.exitCode = exitCode;
+    }
+
+    /**
+     *  后端自身出错时的结果
+     */
+    public static RunResult systemError() {
+        return new RunResult(Verdict.SYSTEM_ERROR, -1);
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public List<CompileDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(List<CompileDiagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.backend.model;
+
+/**
+ *  批量执行里的一个测试用例
+ */
+public class TestCase {
+
+    // 程序的标准输入
+    private String stdin;
+    // 期望输出，不传就只跑不判对错；比较时忽略行尾空白和末尾空行
+    private String expectedOutput;
+    // 这个用例的时间限制（毫秒），不传或 <= 0 用语言默认值，超过语言默认值按默认值算
+    private long timeLimit;
+
+    public String getStdin() {
+        return stdin;
+    }
+
+    public void setStdin(String stdin) {
+        this.stdin = stdin;
+    }
+
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+
+    public void setExpectedOutput(String expectedOutput) {
+        this.expectedOutput = expectedOutput;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.backend.model;
+
+/**
+ *  一次沙箱执行的结论
+ */
+public enum Verdict {
+    // 正常结束，退出码 0
+    OK,
+    // 超过墙钟时间限制，容器被杀掉
+    TIMEOUT,
+    // 超过内存限制（被 OOM kill，或者程序自己报了 OutOfMemoryError / MemoryError）
+    MEMORY_LIMIT,
+    // 输出超过上限，后面的输出被截断，程序被杀掉
+    OUTPUT_LIMIT,
+    // 编译失败（后端编译时给出结构化的诊断信息）
+    COMPILE_ERROR,
+    // 正常结束但输出和期望输出不一致（只有批量测试用例带了 expectedOutput 时才会出现）
+    WRONG_ANSWER,
+    // 退出码非 0（未捕获异常等；冷启动时 javac && java 一起跑，javac 失败也算在这里）
+    RUNTIME_ERROR,
+    // 后端自身出错（docker 不可用等），和用户代码无关
+    SYSTEM_ERROR
+}
@@ -0,0 +1,235 @@
+package org.example.backend.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  通过 fork docker 命令行操作容器
+ *  每个操作都要起一个 docker 进程，docker 进程再去调 /var/run/docker.sock，开销比 EngineApiSandboxRuntime 大，
+ *  保留下来给没有挂 docker.sock、只有 docker 命令可用的环境用（sandbox.runtime=cli）
+ */
+public class CliSandboxRuntime implements SandboxRuntime {
+
+    private final DockerCli dockerCli;
+    // 管理命令（run -d / cp / inspect / rm 等）的超时
+    private final long commandTimeoutMs;
+
+    public CliSandboxRuntime(DockerCli dockerCli, long commandTimeoutMs) {
+        this.dockerCli = dockerCli;
+        this.commandTimeoutMs = commandTimeoutMs;
+    }
+
+    @Override
+    public SandboxProcess run(ContainerSpec spec) throws IOException {
+        List<String> args = new ArrayList<>(Arrays.asList("run", "--rm"));
+        if (spec.getStdin() != null) {
+            args.add("-i");
+        }
+        args.addAll(specArgs(spec));
+        Process process = dockerCli.processBuilder(args.toArray(new String[0])).start();
+        try {
+            writeStdin(process, spec.getStdin());
+        } catch (IOException e) {
+            if (spec.getName() != null) {
+                kill(spec.getName());
+            }
+            throw e;
+        }
+        // 杀掉 docker run 客户端进程并不会停掉容器，必须 docker kill，--rm 会负责删除
+        return new CliProcess(process, spec.getName());
+    }
+
+    @Override
+    public String start(ContainerSpec spec) throws IOException {
+        List<String> args = new ArrayList<>(Arrays.asList("run", "-d"));
+        args.addAll(specArgs(spec));
+        DockerCli.Result result = run(args.toArray(new String[0]));
+        if (!result.isSuccess()) {
+            if (spec.getName() != null) {
+                remove(spec.getName());
+            }
+            throw new IOException("docker run -d failed: " + result.getOutput());
+        }
+        // docker run -d 最后一行输出是容器 id
+        String[] lines = result.getOutput().split("\n");
+        return lines[lines.length - 1].trim();
+    }
+
+    @Override
+    public SandboxProcess exec(String containerId, List<String> command, String workDir, byte[] stdin)
+            throws IOException {
+        List<String> args = new ArrayList<>(Arrays.asList("exec", "-w", workDir));
+        if (stdin != null) {
+            args.add("-i");
+        }
+        args.add(containerId);
+        args.addAll(command);
+        Process process = dockerCli.processBuilder(args.toArray(new String[0])).start();
+        writeStdin(process, stdin);
+        // docker exec 没法单独杀容器里的进程，只能结束客户端进程，由调用方决定是否回收整个容器
+        return new CliProcess(process, null);
+    }
+
+    @Override
+    public void copyTo(String containerId, Path sourceDir, String destDir) throws IOException {
+        DockerCli.Result result = run("cp", sourceDir.toString() + "/.", containerId + ":" + destDir);
+        if (!result.isSuccess()) {
+            throw new IOException("docker cp failed: " + result.getOutput());
+        }
+    }
+
+    @Override
+    public void copyFrom(String containerId, String srcDir, Path destDir) throws IOException {
+        Files.createDirectories(destDir);
+        DockerCli.Result result = run("cp", containerId + ":" + srcDir + "/.", destDir.toString());
+        if (!result.isSuccess()) {
+            throw new IOException("docker cp failed: " + result.getOutput());
+        }
+    }
+
+    @Override
+    public boolean isRunning(String containerId) throws IOException {
+        DockerCli.Result result = run("inspect", "-f", "{{.State.Running}}", containerId);
+        return result.isSuccess() && "true".equals(result.getOutput());
+    }
+
+    @Override
+    public void kill(String containerId) throws IOException {
+        run("kill", containerId);
+    }
+
+    @Override
+    public void remove(String containerId) throws IOException {
+        run("rm", "-f", containerId);
+    }
+
+    @Override
+    public List<String> listByLabel(String label) throws IOException {
+        DockerCli.Result result = run("ps", "-aq", "--filter", "label=" + label);
+        List<String> ids = new ArrayList<>();
+        if (!result.isSuccess() || result.getOutput().isEmpty()) {
+            return ids;
+        }
+        ids.addAll(Arrays.asList(result.getOutput().split("\\s+")));
+        return ids;
+    }
+
+    /**
+     *  ContainerSpec 翻译成 docker run 的参数（不含 run / --rm / -d）
+     */
+    private List<String> specArgs(ContainerSpec spec) {
+        List<String> args = new ArrayList<>();
+        if (spec.getName() != null) {
+            args.add("--name");
+            args.add(spec.getName());
+        }
+        for (Map.Entry<String, String> label : spec.getLabels().entrySet()) {
+            args.add("--label");
+            args.add(label.getKey() + "=" + label.getValue());
+        }
+        for (String bind : spec.getBinds()) {
+            args.add("-v");
+            args.add(bind);
+        }
+        for (Map.Entry<String, String> tmpfs : spec.getTmpfs().entrySet()) {
+            args.add("--tmpfs");
+            args.add(tmpfs.getValue() == null || tmpfs.getValue().isEmpty()
+                    ? tmpfs.getKey() : tmpfs.getKey() + ":" + tmpfs.getValue());
+        }
+        if (spec.getWorkDir() != null) {
+            args.add("-w");
+            args.add(spec.getWorkDir());
+        }
+        if (spec.getCpus() > 0) {
+            args.add("--cpus");
+            args.add(String.valueOf(spec.getCpus()));
+        }
+        if (spec.getMemoryMb() > 0) {
+            // memory-swap 和 memory 相同 = 不允许用 swap
+            args.add("--memory");
+            args.add(spec.getMemoryMb() + "m");
+            args.add("--memory-swap");
+            args.add(spec.getMemoryMb() + "m");
+        }
+        if (spec.getPidsLimit() > 0) {
+            args.add("--pids-limit");
+            args.add(String.valueOf(spec.getPidsLimit()));
+        }
+        args.add(spec.getImage());
+        args.addAll(spec.getCommand());
+        return args;
+    }
+
+    /**
+     *  stdin 写给 docker 客户端进程，由它转给容器里的进程；不写的话关掉，程序读到的就是 EOF
+     */
+    private static void writeStdin(Process process, byte[] stdin) throws IOException {
+        try (OutputStream out = process.getOutputStream()) {
+            if (stdin != null) {
+                out.write(stdin);
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    private DockerCli.Result run(String... args) throws IOException {
+        try {
+            return dockerCli.run(commandTimeoutMs, args);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while running docker " + args[0], e);
+        }
+    }
+
+    /**
+     *  docker run / docker exec 客户端进程
+     */
+    private class CliProcess implements SandboxProcess {
+        private final Process process;
+        // 一次性容器的名字，kill 时要 docker kill；exec 为 null
+        private final String containerName;
+
+        CliProcess(Process process, String containerName) {
+            this.process = process;
+            this.containerName = containerName;
+        }
+
+        @Override
+        public InputStream getOutput() {
+            return process.getInputStream();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            return process.waitFor();
+        }
+
+        @Override
+        public void kill() {
+            try {
+                if (containerName != null) {
+                    CliSandboxRuntime.this.kill(containerName);
+                }
+            } catch (IOException ignore) {
+            } finally {
+                process.destroyForcibly();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.backend.runtime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  创建容器需要的参数，CLI 运行时翻译成 docker run 参数，Engine API 运行时翻译成 JSON
+ */
+public class ContainerSpec {
+
+    private String name;
+    private String image;
+    private List<String> command = new ArrayList<>();
+    private String workDir;
+    // 挂载，格式同 docker -v：宿主机路径:容器路径
+    private List<String> binds = new ArrayList<>();
+    // tmpfs 挂载：容器路径 -> 挂载选项（例如 rw,size=64m），同 docker --tmpfs
+    private Map<String, String> tmpfs = new LinkedHashMap<>();
+    // 非 null 时作为容器主进程的 stdin 写进去，写完关闭（同 docker run -i < 文件）
+    private byte[] stdin;
+    private Map<String, String> labels = new LinkedHashMap<>();
+    // 资源限制，<= 0 表示不限制
+    private double cpus;
+    private long memoryMb;
+    private long pidsLimit;
+
+    public String getName() {
+        return name;
+    }
+
+    public ContainerSpec setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public ContainerSpec setImage(String image) {
+        this.image = image;
+        return this;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    public ContainerSpec setCommand(List<String> command) {
+        this.command = command;
+        return this;
+    }
+
+    public String getWorkDir() {
+        return workDir;
+    }
+
+    public ContainerSpec setWorkDir(String workDir) {
+        this.workDir = workDir;
+        return this;
+    }
+
+    public List<String> getBinds() {
+        return binds;
+    }
+
+    public ContainerSpec addBind(String bind) {
+        this.binds.add(bind);
+        return this;
+    }
+
+    public Map<String, String> getTmpfs() {
+        return tmpfs;
+    }
+
+    public ContainerSpec addTmpfs(String path, String options) {
+        this.tmpfs.put(path, options);
+        return this;
+    }
+
+    public byte[] getStdin() {
+        return stdin;
+    }
+
+    public ContainerSpec setStdin(byte[] stdin) {
+        this.stdin = stdin;
+        return this;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public ContainerSpec addLabel(String key, String value) {
+        this.labels.put(key, value);
+        return this;
+    }
+
+    public double getCpus() {
+        return cpus;
+    }
+
+    public long getMemoryMb() {
+        return memoryMb;
+    }
+
+    public long getPidsLimit() {
+        return pidsLimit;
+    }
+
+    public ContainerSpec setLimits(double cpus, long memoryMb, long pidsLimit) {
+        this.cpus = cpus;
+        this.memoryMb = memoryMb;
+        this.pidsLimit = pidsLimit;
+        return this;
+    }
+}
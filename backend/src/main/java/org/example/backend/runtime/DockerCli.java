@@ -0,0 +1,94 @@
+package org.example.backend.runtime;
+
+import org.example.backend.config.SandboxProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  对 docker 命令行的简单封装
+ *  CliSandboxRuntime 的所有 docker 子进程都从这里 fork 出来，方便统一换 docker 可执行文件（比如测试时换成桩程序）
+ */
+@Component
+public class DockerCli {
+
+    @Autowired
+    private SandboxProperties properties;
+
+    /**
+     *  一条 docker 命令的执行结果：退出码 + stdout/stderr 合并后的输出
+     */
+    public static class Result {
+        private final int exitCode;
+        private final String output;
+
+        public Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public boolean isSuccess() {
+            return exitCode == 0;
+        }
+    }
+
+    /**
+     *  构建 docker 子进程，stderr 合并到 stdout
+     */
+    public ProcessBuilder processBuilder(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(properties.getDockerBinary());
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        return pb;
+    }
+
+    /**
+     *  执行一条 docker 管理命令（run -d / cp / inspect / rm 等），等它结束并返回全部输出
+     *  超时会强制杀掉 docker 子进程，退出码记为 -1
+     */
+    public Result run(long timeoutMs, String... args) throws IOException, InterruptedException {
+        Process process = processBuilder(args).start();
+        StringBuilder outputBuilder = new StringBuilder();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    synchronized (outputBuilder) {
+                        outputBuilder.append(line).append("\n");
+                    }
+                }
+            } catch (IOException ignore) {}
+        }, "docker-cli-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            reader.join(1000);
+            return new Result(-1, "docker " + args[0] + " timed out after " + timeoutMs + " ms");
+        }
+        reader.join();
+        synchronized (outputBuilder) {
+            return new Result(process.exitValue(), outputBuilder.toString().trim());
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package org.example.backend.runtime;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  直接通过 unix socket 调 Docker Engine HTTP API 操作容器，不再 fork docker 命令行
+ *  一次冷启动运行 = create -> attach -> start -> 读输出到 EOF -> wait -> remove，
+ *  普通请求复用 UnixSocketHttpClient 里的 keep-alive 连接
+ *
+ *  注意：和 docker run 不同，create 时镜像不存在不会自动 pull，沙箱镜像需要提前构建好（docker-compose 已经负责）
+ */
+public class EngineApiSandboxRuntime implements SandboxRuntime, Closeable {
+
+    private static final String JSON_TYPE = "application/json";
+    // 128 + SIGKILL(9)
+    private static final int KILLED_EXIT_CODE = 137;
+
+    private final UnixSocketHttpClient client;
+    // 例如 /v1.41
+    private final String prefix;
+
+    public EngineApiSandboxRuntime(UnixSocketHttpClient client, String apiVersion) {
+        this.client = client;
+        this.prefix = apiVersion == null || apiVersion.isEmpty() ? "" : "/" + apiVersion;
+    }
+
+    @Override
+    public SandboxProcess run(ContainerSpec spec) throws IOException {
+        String id = create(spec);
+        try {
+            // 先 attach 再 start，保证不会漏掉程序最开始的输出
+            UnixSocketHttpClient.RawStream stream = client.upgrade("POST",
+                    prefix + "/containers/" + id + "/attach?stream=1&stdout=1&stderr=1"
+                            + (spec.getStdin() != null ? "&stdin=1" : ""), null, null);
+            try {
+                startContainer(id);
+                writeStdin(stream, spec.getStdin());
+            } catch (IOException e) {
+                stream.close();
+                throw e;
+            }
+            return new ContainerProcess(id, stream);
+        } catch (IOException e) {
+            remove(id);
+            throw e;
+        }
+    }
+
+    @Override
+    public String start(ContainerSpec spec) throws IOException {
+        String id = create(spec);
+        try {
+            startContainer(id);
+        } catch (IOException e) {
+            remove(id);
+            throw e;
+        }
+        return id;
+    }
+
+    @Override
+    public SandboxProcess exec(String containerId, List<String> command, String workDir, byte[] stdin)
+            throws IOException {
+        JSONObject body = new JSONObject(new LinkedHashMap<>());
+        body.put("AttachStdin", stdin != null);
+        body.put("AttachStdout", true);
+        body.put("AttachStderr", true);
+        body.put("Cmd", command);
+        body.put("WorkingDir", workDir);
+        UnixSocketHttpClient.Response created = check(client.request("POST",
+                prefix + "/containers/" + containerId + "/exec", JSON_TYPE, json(body)), "exec create");
+        String execId = JSON.parseObject(created.getBodyAsString()).getString("Id");
+
+        JSONObject start = new JSONObject(new LinkedHashMap<>());
+        start.put("Detach", false);
+        start.put("Tty", false);
+        UnixSocketHttpClient.RawStream stream = client.upgrade("POST",
+                prefix + "/exec/" + execId + "/start", JSON_TYPE, json(start));
+        try {
+            writeStdin(stream, stdin);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        return new ExecProcess(execId, stream);
+    }
+
+    @Override
+    public void copyTo(String containerId, Path sourceDir, String destDir) throws IOException {
+        byte[] tar = TarArchive.ofDirectory(sourceDir).toByteArray();
+        check(client.request("PUT", prefix + "/containers/" + containerId + "/archive?path=" + encode(destDir),
+                "application/x-tar", tar), "copy to container");
+    }
+
+    @Override
+    public void copyFrom(String containerId, String srcDir, Path destDir) throws IOException {
+        UnixSocketHttpClient.Response response = check(client.request("GET",
+                prefix + "/containers/" + containerId + "/archive?path=" + encode(srcDir), null, null),
+                "copy from container");
+        // 归档里的条目以 srcDir 的目录名开头，去掉这一层
+        Files.createDirectories(destDir);
+        TarArchive.extract(response.getBody(), destDir, 1);
+    }
+
+    @Override
+    public boolean isRunning(String containerId) throws IOException {
+        UnixSocketHttpClient.Response response = client.request("GET",
+                prefix + "/containers/" + containerId + "/json", null, null);
+        if (response.getStatus() == 404) {
+            return false;
+        }
+        check(response, "inspect");
+        JSONObject state = JSON.parseObject(response.getBodyAsString()).getJSONObject("State");
+        return state != null && state.getBooleanValue("Running");
+    }
+
+    @Override
+    public void kill(String containerId) throws IOException {
+        UnixSocketHttpClient.Response response = client.request("POST",
+                prefix + "/containers/" + containerId + "/kill", null, null);
+        // 404：容器不存在；409：容器已经不在运行，都不算错误
+        if (response.getStatus() != 404 && response.getStatus() != 409) {
+            check(response, "kill");
+        }
+    }
+
+    @Override
+    public void remove(String containerId) throws IOException {
+        UnixSocketHttpClient.Response response = client.request("DELETE",
+                prefix + "/containers/" + containerId + "?force=1", null, null);
+        if (response.getStatus() != 404) {
+            check(response, "remove");
+        }
+    }
+
+    @Override
+    public List<String> listByLabel(String label) throws IOException {
+        JSONObject filters = new JSONObject();
+        filters.put("label", Collections.singletonList(label));
+        UnixSocketHttpClient.Response response = check(client.request("GET",
+                prefix + "/containers/json?all=1&filters=" + encode(filters.toJSONString()), null, null), "list");
+        List<String> ids = new ArrayList<>();
+        JSONArray containers = JSON.parseArray(response.getBodyAsString());
+        for (int i = 0; i < containers.size(); i++) {
+            ids.add(containers.getJSONObject(i).getString("Id"));
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /**
+     *  POST /containers/create，ContainerSpec 翻译成 Engine API 的 JSON
+     */
+    private String create(ContainerSpec spec) throws IOException {
+        JSONObject body = new JSONObject(new LinkedHashMap<>());
+        body.put("Image", spec.getImage());
+        body.put("Cmd", spec.getCommand());
+        if (spec.getWorkDir() != null) {
+            body.put("WorkingDir", spec.getWorkDir());
+        }
+        body.put("Labels", spec.getLabels());
+        body.put("AttachStdout", true);
+        body.put("AttachStderr", true);
+        if (spec.getStdin() != null) {
+            // StdinOnce：attach 的连接关闭写方向后，容器里的 stdin 就读到 EOF
+            body.put("AttachStdin", true);
+            body.put("OpenStdin", true);
+            body.put("StdinOnce", true);
+        }
+
+        Map<String, Object> hostConfig = new LinkedHashMap<>();
+        hostConfig.put("Binds", spec.getBinds());
+        if (!spec.getTmpfs().isEmpty()) {
+            hostConfig.put("Tmpfs", spec.getTmpfs());
+        }
+        if (spec.getCpus() > 0) {
+            hostConfig.put("NanoCpus", (long) (spec.getCpus() * 1_000_000_000L));
+        }
+        if (spec.getMemoryMb() > 0) {
+            long bytes = spec.getMemoryMb() * 1024 * 1024;
+            hostConfig.put("Memory", bytes);
+            // MemorySwap 和 Memory 相同 = 不允许用 swap
+            hostConfig.put("MemorySwap", bytes);
+        }
+        if (spec.getPidsLimit() > 0) {
+            hostConfig.put("PidsLimit", spec.getPidsLimit());
+        }
+        body.put("HostConfig", hostConfig);
+
+        String path = prefix + "/containers/create" + (spec.getName() != null ? "?name=" + encode(spec.getName()) : "");
+        UnixSocketHttpClient.Response response = check(client.request("POST", path, JSON_TYPE, json(body)), "create");
+        return JSON.parseObject(response.getBodyAsString()).getString("Id");
+    }
+
+    private void startContainer(String id) throws IOException {
+        UnixSocketHttpClient.Response response = client.request("POST",
+                prefix + "/containers/" + id + "/start", null, null);
+        // 304：已经启动了
+        if (response.getStatus() != 304) {
+            check(response, "start");
+        }
+    }
+
+    /**
+     *  把 stdin 写进劫持的连接，然后只关闭写方向，进程读到 EOF；输出照常从读方向读
+     */
+    private static void writeStdin(UnixSocketHttpClient.RawStream stream, byte[] stdin) throws IOException {
+        if (stdin == null) {
+            return;
+        }
+        stream.getOutput().write(stdin);
+        stream.shutdownOutput();
+    }
+
+    private static UnixSocketHttpClient.Response check(UnixSocketHttpClient.Response response, String action)
+            throws IOException {
+        if (response.getStatus() >= 400) {
+            String message = response.getBodyAsString().trim();
+            try {
+                JSONObject error = JSON.parseObject(message);
+                if (error != null && error.getString("message") != null) {
+                    message = error.getString("message");
+                }
+            } catch (RuntimeException ignore) {}
+            throw new IOException("docker engine " + action + " failed: " + response.getStatus() + " " + message);
+        }
+        return response;
+    }
+
+    private static byte[] json(JSONObject body) {
+        return body.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     *  一次性容器：输出来自 attach 的劫持连接，退出码来自 wait，close 时删除容器
+     */
+    private class ContainerProcess implements SandboxProcess {
+        private final String id;
+        private final UnixSocketHttpClient.RawStream stream;
+        private final InputStream output;
+
+        ContainerProcess(String id, UnixSocketHttpClient.RawStream stream) {
+            this.id = id;
+            this.stream = stream;
+            this.output = new MultiplexedInputStream(stream.getInput());
+        }
+
+        @Override
+        public InputStream getOutput() {
+            return output;
+        }
+
+        @Override
+        public int waitFor() throws IOException {
+            UnixSocketHttpClient.Response response = check(client.request("POST",
+                    prefix + "/containers/" + id + "/wait", null, null), "wait");
+            return JSON.parseObject(response.getBodyAsString()).getIntValue("StatusCode");
+        }
+
+        @Override
+        public void kill() {
+            try {
+                EngineApiSandboxRuntime.this.kill(id);
+            } catch (IOException ignore) {
+            } finally {
+                stream.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+            try {
+                remove(id);
+            } catch (IOException ignore) {}
+        }
+    }
+
+    /**
+     *  docker exec：输出来自 exec start 的劫持连接，退出码从 exec inspect 里取
+     *  Engine API 没有单独杀 exec 进程的接口，kill 只能断开连接，由调用方回收整个容器
+     */
+    private class ExecProcess implements SandboxProcess {
+        private final String execId;
+        private final UnixSocketHttpClient.RawStream stream;
+        private final InputStream output;
+        private volatile boolean killed;
+
+        ExecProcess(String execId, UnixSocketHttpClient.RawStream stream) {
+            this.execId = execId;
+            this.stream = stream;
+            this.output = new MultiplexedInputStream(stream.getInput());
+        }
+
+        @Override
+        public InputStream getOutput() {
+            return output;
+        }
+
+        @Override
+        public int waitFor() throws IOException, InterruptedException {
+            // 被 kill 的 exec 进程其实还在容器里跑，不用等，按 SIGKILL 的退出码返回
+            if (killed) {
+                return KILLED_EXIT_CODE;
+            }
+            // 输出读到 EOF 时进程基本已经结束，Running 还是 true 的话稍等再查
+            while (!killed) {
+                UnixSocketHttpClient.Response response = check(client.request("GET",
+                        prefix + "/exec/" + execId + "/json", null, null), "exec inspect");
+                JSONObject inspect = JSON.parseObject(response.getBodyAsString());
+                if (!inspect.getBooleanValue("Running")) {
+                    return inspect.getIntValue("ExitCode");
+                }
+                Thread.sleep(10);
+            }
+            return KILLED_EXIT_CODE;
+        }
+
+        @Override
+        public void kill() {
+            killed = true;
+            stream.close();
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+    }
+}
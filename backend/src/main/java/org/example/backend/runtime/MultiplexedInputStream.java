@@ -0,0 +1,74 @@
+package org.example.backend.runtime;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ *  解开 Docker 的多路复用输出流（容器没有分配 TTY 时 attach / exec 返回的格式）
+ *  每一帧是 8 字节头：[流类型(1=stdout, 2=stderr), 0, 0, 0, 负载长度(4 字节大端)]，后面跟负载
+ *  这里把 stdout 和 stderr 合并成一个流，效果和 ProcessBuilder.redirectErrorStream(true) 一样
+ */
+public class MultiplexedInputStream extends InputStream {
+
+    private final InputStream in;
+    private final byte[] header = new byte[8];
+    // 当前帧还剩多少字节没读
+    private int remaining;
+    private boolean eof;
+
+    public MultiplexedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (remaining == 0) {
+            if (eof || !readHeader()) {
+                eof = true;
+                return -1;
+            }
+        }
+        int n = in.read(b, off, Math.min(len, remaining));
+        if (n == -1) {
+            throw new EOFException("multiplexed stream ended in the middle of a frame");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    /**
+     *  读下一帧的帧头，流正常结束返回 false
+     */
+    private boolean readHeader() throws IOException {
+        int read = 0;
+        while (read < header.length) {
+            int n = in.read(header, read, header.length - read);
+            if (n == -1) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new EOFException("multiplexed stream ended in the middle of a frame header");
+            }
+            read += n;
+        }
+        remaining = ((header[4] & 0xff) << 24) | ((header[5] & 0xff) << 16)
+                | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.backend.runtime;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ *  容器里正在运行的一个程序（docker run 的容器主进程，或者 docker exec 的进程）
+ */
+public interface SandboxProcess extends Closeable {
+
+    /**
+     *  stdout + stderr 合并后的输出流，程序结束后读到 EOF
+     */
+    InputStream getOutput();
+
+    /**
+     *  等程序结束，返回退出码
+     */
+    int waitFor() throws IOException, InterruptedException;
+
+    /**
+     *  强制结束程序（超时、输出超限时用），之后输出流会很快读到 EOF
+     */
+    void kill();
+
+    /**
+     *  释放资源（一次性容器在这里删除）
+     */
+    @Override
+    void close();
+}
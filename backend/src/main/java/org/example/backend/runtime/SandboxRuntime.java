@@ -0,0 +1,62 @@
+package org.example.backend.runtime;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ *  容器运行时的抽象：沙箱服务和容器池只通过它操作容器
+ *  - CliSandboxRuntime：fork docker 命令行（老办法）
+ *  - EngineApiSandboxRuntime：直接通过 /var/run/docker.sock 调 Docker Engine HTTP API，省掉每次 fork/exec docker 进程
+ *  用 sandbox.runtime=engine|cli 选择
+ */
+public interface SandboxRuntime {
+
+    /**
+     *  一次性运行一个容器（相当于 docker run --rm）：创建、附加输出、启动，spec 带了 stdin 的话再把它写进去
+     *  返回的进程句柄 close 时负责删除容器
+     */
+    SandboxProcess run(ContainerSpec spec) throws IOException;
+
+    /**
+     *  后台启动一个常驻容器（相当于 docker run -d），返回容器 id
+     */
+    String start(ContainerSpec spec) throws IOException;
+
+    /**
+     *  在运行中的容器里执行命令（相当于 docker exec -w workDir）
+     */
+    default SandboxProcess exec(String containerId, List<String> command, String workDir) throws IOException {
+        return exec(containerId, command, workDir, null);
+    }
+
+    /**
+     *  同上，stdin 非 null 时写进进程的标准输入后关闭（相当于 docker exec -i ... < 文件）
+     *  stdin 在返回之前同步写完，只适合先把输入读完再产生输出的命令（比如 tar -x）
+     */
+    SandboxProcess exec(String containerId, List<String> command, String workDir, byte[] stdin) throws IOException;
+
+    /**
+     *  把本地目录下的内容拷到容器的 destDir（相当于 docker cp dir/. container:destDir）
+     */
+    void copyTo(String containerId, Path sourceDir, String destDir) throws IOException;
+
+    /**
+     *  把容器里 srcDir 下的内容拷到本地的 destDir（相当于 docker cp container:srcDir/. destDir）
+     */
+    void copyFrom(String containerId, String srcDir, Path destDir) throws IOException;
+
+    boolean isRunning(String containerId) throws IOException;
+
+    void kill(String containerId) throws IOException;
+
+    /**
+     *  强制删除容器（相当于 docker rm -f），容器不存在也不报错
+     */
+    void remove(String containerId) throws IOException;
+
+    /**
+     *  列出带某个 label 的所有容器 id（包括已经停止的）
+     */
+    List<String> listByLabel(String label) throws IOException;
+}
@@ -0,0 +1,230 @@
+package org.example.backend.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ *  在内存里拼一个最简单的 tar（ustar 格式），只支持普通文件和目录
+ *  Docker Engine API 往容器里拷文件（PUT /containers/{id}/archive）要求请求体是 tar，
+ *  从容器里拷出来（GET /containers/{id}/archive）返回的也是 tar，用 extract / readFiles 解开；
+ *  沙箱的工作目录也是打成 tar 从 stdin 送进容器的（见 Workspace）
+ */
+public class TarArchive {
+
+    private static final int BLOCK = 512;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /**
+     *  把目录下的所有内容（递归）加进来，条目名是相对这个目录的路径
+     */
+    public static TarArchive ofDirectory(Path dir) throws IOException {
+        TarArchive tar = new TarArchive();
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.filter(p -> !p.equals(dir)).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            String name = dir.relativize(path).toString().replace('\\', '/');
+            if (Files.isDirectory(path)) {
+                tar.addDirectory(name);
+            } else {
+                tar.addFile(name, Files.readAllBytes(path));
+            }
+        }
+        return tar;
+    }
+
+    /**
+     *  把 tar 解到 destDir 下，去掉每个条目路径的前 stripComponents 段
+     *  （docker 返回的归档以被拷贝的目录名开头，例如 classes/Main.class）
+     *  只处理普通文件和目录，其他类型（链接、PAX 扩展头等）跳过；路径逃出 destDir 的条目直接报错
+     */
+    public static void extract(byte[] tar, Path destDir, int stripComponents) throws IOException {
+        Path root = destDir.toAbsolutePath().normalize();
+        read(tar, stripComponents, (name, directory, data) -> {
+            Path target = root.resolve(name).normalize();
+            if (!target.startsWith(root)) {
+                throw new IOException("tar entry escapes destination: " + name);
+            }
+            if (directory) {
+                Files.createDirectories(target);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.write(target, data);
+            }
+        });
+    }
+
+    /**
+     *  把 tar 里的普通文件读到内存：相对路径 -> 内容，路径规则同 extract
+     */
+    public static Map<String, byte[]> readFiles(byte[] tar, int stripComponents) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        read(tar, stripComponents, (name, directory, data) -> {
+            if (!directory) {
+                if (name.equals("..") || name.startsWith("../")) {
+                    throw new IOException("tar entry escapes destination: " + name);
+                }
+                files.put(name, data);
+            }
+        });
+        return files;
+    }
+
+    private interface EntryVisitor {
+        void visit(String name, boolean directory, byte[] data) throws IOException;
+    }
+
+    private static void read(byte[] tar, int stripComponents, EntryVisitor visitor) throws IOException {
+        int offset = 0;
+        while (offset + BLOCK <= tar.length) {
+            if (isZeroBlock(tar, offset)) {
+                return;
+            }
+            String name = string(tar, offset, 100);
+            String prefix = string(tar, offset + 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+            long size = parseOctal(tar, offset + 124, 12);
+            char type = (char) tar[offset + 156];
+            int dataOffset = offset + BLOCK;
+            offset = dataOffset + (int) ((size + BLOCK - 1) / BLOCK * BLOCK);
+
+            String[] parts = name.split("/");
+            if (parts.length <= stripComponents) {
+                continue;
+            }
+            StringBuilder relative = new StringBuilder();
+            for (int i = stripComponents; i < parts.length; i++) {
+                if (parts[i].isEmpty() || ".".equals(parts[i])) {
+                    continue;
+                }
+                if (relative.length() > 0) {
+                    relative.append('/');
+                }
+                relative.append(parts[i]);
+            }
+            if (relative.length() == 0) {
+                continue;
+            }
+            if (type == '5') {
+                visitor.visit(relative.toString(), true, null);
+            } else if (type == '0' || type == 0) {
+                if (dataOffset + size > tar.length) {
+                    throw new IOException("truncated tar entry: " + name);
+                }
+                visitor.visit(relative.toString(), false, Arrays.copyOfRange(tar, dataOffset, dataOffset + (int) size));
+            }
+        }
+    }
+
+    public TarArchive addFile(String name, byte[] content) {
+        writeHeader(name, content.length, '0', 0644);
+        out.write(content, 0, content.length);
+        pad(content.length);
+        return this;
+    }
+
+    public TarArchive addDirectory(String name) {
+        writeHeader(name.endsWith("/") ? name : name + "/", 0, '5', 0755);
+        return this;
+    }
+
+    /**
+     *  结束归档：两个全 0 的块
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(out.size() + 2 * BLOCK);
+        result.write(out.toByteArray(), 0, out.size());
+        result.write(new byte[2 * BLOCK], 0, 2 * BLOCK);
+        return result.toByteArray();
+    }
+
+    private void writeHeader(String name, long size, char type, int mode) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 100) {
+            throw new IllegalArgumentException("tar entry name too long: " + name);
+        }
+        byte[] header = new byte[BLOCK];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, System.currentTimeMillis() / 1000);
+        header[156] = (byte) type;
+        ascii(header, 257, "ustar\0");
+        ascii(header, 263, "00");
+        // 校验和：先把校验和字段当成 8 个空格算
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        header[155] = ' ';
+        out.write(header, 0, BLOCK);
+    }
+
+    private void pad(long size) {
+        int padding = (int) ((BLOCK - size % BLOCK) % BLOCK);
+        out.write(new byte[padding], 0, padding);
+    }
+
+    /**
+     *  写一个以 \0 结尾、前面补 0 的八进制数字段
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String s = Long.toOctalString(value);
+        StringBuilder padded = new StringBuilder();
+        for (int i = s.length(); i < length - 1; i++) {
+            padded.append('0');
+        }
+        padded.append(s);
+        ascii(header, offset, padded.toString());
+        header[offset + length - 1] = 0;
+    }
+
+    private static boolean isZeroBlock(byte[] tar, int offset) {
+        for (int i = offset; i < offset + BLOCK; i++) {
+            if (tar[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *  读一个以 \0 结尾（或占满整个字段）的字符串字段
+     */
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) {
+        String value = string(header, offset, length).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+    }
+
+    private static void ascii(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,366 @@
+package org.example.backend.runtime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ *  跑在 unix domain socket 上的极简 HTTP/1.1 客户端，专门给 Docker Engine API 用
+ *  - 普通请求：连接用完放回空闲池（keep-alive），下次直接复用，省掉建连
+ *  - upgrade 请求（attach / exec start）：Docker 会把连接"劫持"成原始的双向流，这种连接交给调用方，不再放回池里
+ *  只实现了 Docker 会用到的部分：Content-Length、chunked、101 Switching Protocols
+ */
+public class UnixSocketHttpClient implements Closeable {
+
+    private final Path socketPath;
+    private final int maxIdleConnections;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+
+    private volatile boolean closed;
+
+    public UnixSocketHttpClient(Path socketPath, int maxIdleConnections) {
+        this.socketPath = socketPath;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     *  普通请求的响应，响应体已经完整读出来
+     */
+    public static class Response {
+        private final int status;
+        private final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getBodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     *  被劫持的连接：请求发出去之后，剩下的就是原始的双向字节流
+     */
+    public static class RawStream implements Closeable {
+        private final Connection connection;
+
+        RawStream(Connection connection) {
+            this.connection = connection;
+        }
+
+        public InputStream getInput() {
+            return connection.in;
+        }
+
+        public OutputStream getOutput() {
+            return connection.out;
+        }
+
+        /**
+         *  只关闭写方向（告诉对方 stdin 结束了），读方向继续可用
+         */
+        public void shutdownOutput() throws IOException {
+            connection.out.flush();
+            connection.channel.shutdownOutput();
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+        }
+    }
+
+    public Response request(String method, String path, String contentType, byte[] body) throws IOException {
+        Connection connection = idle.pollFirst();
+        boolean reused = connection != null;
+        if (connection == null) {
+            connection = connect();
+        }
+        try {
+            return exchange(connection, method, path, contentType, body);
+        } catch (StaleConnectionException e) {
+            // 复用的连接可能已经被 daemon 关掉了（空闲超时），一个字节都没响应，换一条新连接重试一次
+            connection.close();
+            if (!reused) {
+                throw e;
+            }
+            return exchange(connect(), method, path, contentType, body);
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     *  发一个 upgrade 请求，成功（101，或者老版本 daemon 的 200）后返回劫持的连接
+     *  upgrade 连接不复用，总是新建
+     */
+    public RawStream upgrade(String method, String path, String contentType, byte[] body) throws IOException {
+        Connection connection = connect();
+        try {
+            writeRequest(connection, method, path, contentType, body, true);
+            int status = readStatusLine(connection.in);
+            Map<String, String> headers = readHeaders(connection.in);
+            if (status == 101 || status == 200) {
+                return new RawStream(connection);
+            }
+            byte[] error = readBody(connection.in, status, headers);
+            throw new IOException("docker engine " + method + " " + path + " failed: "
+                    + status + " " + new String(error, StandardCharsets.UTF_8).trim());
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Response exchange(Connection connection, String method, String path,
+                              String contentType, byte[] body) throws IOException {
+        writeRequest(connection, method, path, contentType, body, false);
+        int status = readStatusLine(connection.in);
+        Map<String, String> headers = readHeaders(connection.in);
+        byte[] responseBody = readBody(connection.in, status, headers);
+        boolean keepAlive = !"close".equalsIgnoreCase(headers.get("connection"))
+                && (headers.containsKey("content-length") || headers.containsKey("transfer-encoding")
+                || status == 204 || status == 304);
+        release(connection, keepAlive);
+        return new Response(status, responseBody);
+    }
+
+    private void release(Connection connection, boolean keepAlive) {
+        if (keepAlive && !closed && idle.size() < maxIdleConnections) {
+            idle.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+    }
+
+    private Connection connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Connection(channel);
+    }
+
+    private void writeRequest(Connection connection, String method, String path, String contentType,
+                              byte[] body, boolean upgrade) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+        // unix socket 上 Host 没有意义，但 HTTP/1.1 要求必须有
+        head.append("Host: docker\r\n");
+        if (upgrade) {
+            head.append("Connection: Upgrade\r\n");
+            head.append("Upgrade: tcp\r\n");
+        }
+        if (body != null) {
+            head.append("Content-Type: ").append(contentType).append("\r\n");
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+        } else if (!"GET".equals(method)) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+        connection.out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        if (body != null) {
+            connection.out.write(body);
+        }
+        connection.out.flush();
+    }
+
+    private static int readStatusLine(InputStream in) throws IOException {
+        String line = readLine(in);
+        if (line == null) {
+            throw new StaleConnectionException();
+        }
+        // HTTP/1.1 200 OK
+        String[] parts = line.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("malformed status line: " + line);
+        }
+        return Integer.parseInt(parts[1]);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("connection closed in response headers");
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(InputStream in, int status, Map<String, String> headers) throws IOException {
+        if (status == 204 || status == 304 || (status >= 100 && status < 200)) {
+            return new byte[0];
+        }
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine(in);
+                if (sizeLine == null) {
+                    throw new EOFException("connection closed in chunked body");
+                }
+                int semicolon = sizeLine.indexOf(';');
+                int size = Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+                if (size == 0) {
+                    // 跳过 trailer，直到空行
+                    String trailer;
+                    while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                        // ignore
+                    }
+                    return body.toByteArray();
+                }
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+        }
+        String length = headers.get("content-length");
+        if (length != null) {
+            return readFully(in, Integer.parseInt(length));
+        }
+        // 既没有长度也不是 chunked：读到连接关闭
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            body.write(buffer, 0, n);
+        }
+        return body.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream in, int size) throws IOException {
+        byte[] data = new byte[size];
+        int read = 0;
+        while (read < size) {
+            int n = in.read(data, read, size - read);
+            if (n == -1) {
+                throw new EOFException("connection closed in response body");
+            }
+            read += n;
+        }
+        return data;
+    }
+
+    /**
+     *  读一行（\r\n 结尾，返回的字符串不含换行），流结束且没读到任何字节返回 null
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.size();
+                byte[] bytes = line.toByteArray();
+                if (length > 0 && bytes[length - 1] == '\r') {
+                    length--;
+                }
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            line.write(b);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1.name());
+    }
+
+    /**
+     *  还没收到任何响应连接就断了
+     */
+    private static class StaleConnectionException extends EOFException {
+        StaleConnectionException() {
+            super("connection closed before response");
+        }
+    }
+
+    /**
+     *  一条 unix socket 连接
+     *  读写直接调 channel.read / channel.write，而不是 Channels.newInputStream：
+     *  后者读写共用一把锁，劫持的连接上一边阻塞读输出、一边写 stdin 会互相卡住
+     */
+    static class Connection implements Closeable {
+        final SocketChannel channel;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    int n = read(one, 0, 1);
+                    return n == -1 ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    return channel.read(ByteBuffer.wrap(b, off, len));
+                }
+            }, 8192);
+            this.out = new BufferedOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }, 8192);
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.backend.service;
+
+import org.example.backend.model.CompileDiagnostic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  一次后端编译的结果
+ */
+public class CompilationResult {
+
+    private final boolean success;
+    // 类的二进制名（例如 Main、Main$Inner、pkg.Util）-> 字节码
+    private final Map<String, byte[]> classes;
+    private final List<CompileDiagnostic> diagnostics;
+    // 和 javac 命令行格式一样的输出，直接给用户看
+    private final String output;
+
+    public CompilationResult(boolean success, Map<String, byte[]> classes,
+                             List<CompileDiagnostic> diagnostics, String output) {
+        this.success = success;
+        this.classes = classes;
+        this.diagnostics = diagnostics;
+        this.output = output;
+    }
+
+    /**
+     *  按包结构把 .class 写到 dir 下（效果同 javac -d dir）
+     */
+    public void writeClassesTo(Path dir) throws IOException {
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path file = dir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+        }
+    }
+
+    /**
+     *  按包结构排好的 .class：相对 classes 目录的路径（例如 pkg/Util.class）-> 字节码
+     */
+    public Map<String, byte[]> getClassFiles() {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            files.put(entry.getKey().replace('.', '/') + ".class", entry.getValue());
+        }
+        return files;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Map<String, byte[]> getClasses() {
+        return classes;
+    }
+
+    public List<CompileDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+}
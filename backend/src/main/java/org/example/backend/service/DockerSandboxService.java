@@ -1,181 +1,840 @@
-package org.example.backend.service;
-
-import org.springframework.stereotype.Service;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
-import java.util.UUID;
-
-/**
- *  每次执行用户代码都启动一个独立 Docker 容器
- *  然后通过挂载宿主机临时目录的方式，把用户脚本带进容器执行
- *  容器退出后自动 --rm 删除，最后我们也会删除宿主机的临时目录
- */
-@Service
-public class DockerSandboxService {
-
-    // 这里写好镜像名称，可以放到 application.properties 里做配置
-    private static final String DOCKER_IMAGE = "my-runner-image:latest";
-
-    /**
-     * 运行 Python 代码：在独立容器中执行
-     */
-
-    // 在 Docker 中，挂载卷（Volumes） 是宿主机和容器之间共享文件和目录的一种机制。
-    // 通过挂载卷，容器内的应用可以访问宿主机上的文件系统，而无需关心宿主机的具体路径。
-    public String runPythonCodeInNewContainer(String code) {
-        Path tempDirInContainer = null;
-        try {
-            // 1) 在后端容器里（/mytemp）创建一个临时目录
-            // /mytemp 目录：
-            // 根据docker-compose.yml，宿主机的 ./tempfiles 目录被挂载到后端容器内的 /mytemp 目录。
-            // 这意味着在容器内 /mytemp 目录下创建的任何文件或目录，都会实际存储在宿主机的 ./tempfiles 目录中。
-            // 为什么这么做？这种做法使得代码不依赖于宿主机的具体路径，提高了代码的可移植性。
-            // 无论宿主机的实际路径是什么，容器内的应用始终通过 /mytemp 进行访问。这简化了代码逻辑，避免了在不同环境下修改代码以适应不同路径的问题。
-            // 只需要动配置文件即可
-            Path containerMountedDir = Paths.get("/mytemp");
-            // 使用 Files.createTempDirectory 在 /mytemp 下创建一个以 py_sandbox_ 开头的临时目录，例如 /mytemp/py_sandbox_12345。
-            // 这个临时目录用于存放即将运行的 Python 脚本。
-            tempDirInContainer = Files.createTempDirectory(containerMountedDir, "py_sandbox_");
-
-            // 2) 写脚本到容器内 /mytemp/py_sandbox_xxx/script.py
-            Path scriptFileInContainer = tempDirInContainer.resolve("script.py");
-            Files.write(scriptFileInContainer, code.getBytes(StandardCharsets.UTF_8));
-
-            // === 核心：拿到宿主机真实绝对路径，比如 /home/ubuntu/Online-Compiler/tempfiles ===
-            String hostTempfilesRoot = System.getenv("HOST_TEMPFILES_ROOT");
-            // getFileName() 例如 "py_sandbox_12345"
-            String subDirName = tempDirInContainer.getFileName().toString();
-            // 拼出宿主机对应路径
-            Path hostDir = Paths.get(hostTempfilesRoot, subDirName);
-
-            // 3) 通过 docker run -v <宿主机路径>:/workspace ...
-            String containerName = "sandbox_python_" + UUID.randomUUID().toString().replaceAll("-", "");
-            // 参数解释：
-            // --rm：容器退出后自动删除，确保不留残余。
-            // --name：指定容器名称。
-            // -v /home/ubuntu/Online-Compiler/tempfiles/py_sandbox_12345:/workspace：将宿主机的临时目录挂载到容器内的 /workspace 目录。
-            // my-runner-image:latest：使用预先构建好的沙箱镜像。
-            // python3 /workspace/script.py：在容器内执行 Python 脚本。
-            ProcessBuilder pb = new ProcessBuilder(
-                    "docker", "run", "--rm",
-                    "--name", containerName,
-                    "-v", hostDir.toString() + ":/workspace",
-                    "my-runner-image:latest",
-                    "python3", "/workspace/script.py"
-            );
-
-            // 4) 拿输出
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
-            );
-            StringBuilder outputBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                outputBuilder.append(line).append("\n");
-            }
-
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                outputBuilder.append("Process exited with error code: ").append(exitCode).append("\n");
-            }
-            return outputBuilder.toString().trim();
-
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        } finally {
-            // 5) 清理临时文件
-            if (tempDirInContainer != null) {
-                try {
-                    Files.walk(tempDirInContainer)
-                            .sorted((p1, p2) -> p2.compareTo(p1))
-                            .forEach(path -> {
-                                try {
-                                    Files.deleteIfExists(path);
-                                } catch (IOException ignore) {}
-                            });
-                } catch (IOException ignore) {}
-            }
-        }
-    }
-
-
-    /**
-     * 运行 Java 代码：在独立容器中执行
-     * 要求用户代码里有 public class Main + main方法
-     */
-    public String runJavaCodeInNewContainer(String code) {
-        Path tempDirInContainer = null;
-        try {
-            // 1) 在后端容器里（/mytemp）创建一个临时目录
-            Path containerMountedDir = Paths.get("/mytemp");
-            tempDirInContainer = Files.createTempDirectory(containerMountedDir, "java_sandbox_");
-
-            // 2) 写 Main.java 到容器内 /mytemp/java_sandbox_xxx/Main.java
-            Path javaFileInContainer = tempDirInContainer.resolve("Main.java");
-            Files.write(javaFileInContainer, code.getBytes(StandardCharsets.UTF_8));
-
-            // === 关键：拿到宿主机真实绝对路径，比如 /home/ubuntu/Online-Compiler/tempfiles ===
-            String hostTempfilesRoot = System.getenv("HOST_TEMPFILES_ROOT");
-            // 比如 tempDirInContainer = /mytemp/java_sandbox_12345
-            // getFileName() => "java_sandbox_12345"
-            String subDirName = tempDirInContainer.getFileName().toString();
-            // 组装成宿主机对应的路径 => /home/ubuntu/Online-Compiler/tempfiles/java_sandbox_12345
-            Path hostDir = Paths.get(hostTempfilesRoot, subDirName);
-
-            // 3) 构建 docker 命令
-            //    这里我们一次性执行：cd /workspace && javac Main.java && java Main
-            String containerName = "sandbox_java_" + UUID.randomUUID().toString().replaceAll("-", "");
-            String command = "cd /workspace && javac Main.java && java Main";
-
-            ProcessBuilder pb = new ProcessBuilder(
-                    "docker", "run", "--rm",
-                    "--name", containerName,
-                    "-v", hostDir.toString() + ":/workspace",
-                    "my-runner-image:latest",
-                    "/bin/bash", "-c", command
-            );
-
-            // 4) 启动进程并读取输出
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
-            );
-            StringBuilder outputBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                outputBuilder.append(line).append("\n");
-            }
-
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                outputBuilder.append("Process exited with error code: ").append(exitCode).append("\n");
-            }
-            return outputBuilder.toString().trim();
-
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        } finally {
-            // 5) 清理临时文件
-            if (tempDirInContainer != null) {
-                try {
-                    Files.walk(tempDirInContainer)
-                            .sorted((p1, p2) -> p2.compareTo(p1))
-                            .forEach(path -> {
-                                try {
-                                    Files.deleteIfExists(path);
-                                } catch (IOException ignore) {}
-                            });
-                } catch (IOException ignore) {}
-            }
-        }
-    }
-
-
-}
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.BatchResult;
+import org.example.backend.model.CaseResult;
+import org.example.backend.model.CompileDiagnostic;
+import org.example.backend.model.RunResult;
+import org.example.backend.model.TestCase;
+import org.example.backend.model.Verdict;
+import org.example.backend.runtime.ContainerSpec;
+import org.example.backend.runtime.SandboxProcess;
+import org.example.backend.runtime.SandboxRuntime;
+import org.example.backend.runtime.TarArchive;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  在 Docker 沙箱里执行用户代码
+ *  优先从预热容器池（SandboxContainerPool）借一个已经启动好的容器 exec 执行；
+ *  池没启用或者暂时借不到容器时，退回老办法：每次启动一个独立容器，容器退出后自动 --rm 删除。
+ *  工作目录（源码 / .class / 输入）在内存里拼成 Workspace，默认打成 tar 从 stdin 送进容器、
+ *  和要执行的命令在同一次 exec / run 里解开（sandbox.workspace.delivery=stream，/workspace 在 tmpfs 上），
+ *  后端不读写 /mytemp；bind 模式下冷启动仍然写临时目录再挂载进容器，跑完删除
+ *  容器操作都经过 SandboxRuntime（默认直接调 Docker Engine API，也可以配置成 fork docker 命令行）
+ *
+ *  每次执行都受按语言配置的限制约束：墙钟时间、CPU、内存、pids、输出大小，结果带上结构化的 Verdict
+ */
+@Service
+public class DockerSandboxService {
+
+    @Autowired
+    private SandboxProperties properties;
+
+    @Autowired
+    private SandboxRuntime runtime;
+
+    @Autowired
+    private SandboxContainerPool containerPool;
+
+    @Autowired
+    private JavaCompileCache compileCache;
+
+    @Autowired
+    private JavaCompilationService javaCompiler;
+
+    @Autowired
+    private WarmRuntime warmRuntime;
+
+    // javac 输出目录（相对 /workspace），编译缓存也按这个布局存 .class
+    private static final String CLASSES_DIR = "classes";
+    // 标准输入文件（相对 /workspace）
+    private static final String STDIN_FILE = "stdin.txt";
+    // 从 stdin 读 tar 解到当前目录（/workspace），放在要执行的命令前面
+    private static final String UNPACK_COMMAND = "tar -xf -";
+
+    // 128 + SIGKILL(9)：容器内进程被内核 OOM killer 杀掉时的退出码
+    private static final int OOM_KILLED_EXIT_CODE = 137;
+
+    // 批量执行时每个用例的输入 cases/<i>.in 和资源统计 cases/<i>.stat（相对 /workspace）
+    private static final String CASES_DIR = "cases";
+    // 批量执行时的运行命令写成脚本，套在 time / timeout 后面执行
+    private static final String RUN_SCRIPT = "run.sh";
+    // coreutils timeout 到点后的退出码
+    private static final int TIMEOUT_EXIT_CODE = 124;
+    // 批量用例由容器里的 timeout 按时杀进程，看门狗多等一会儿只做兜底
+    private static final long CASE_WATCHDOG_GRACE_MS = 2000;
+
+    // 墙钟超时看门狗，到点后杀容器
+    private ScheduledExecutorService watchdogExecutor;
+    // 批量执行时并发跑用例的线程，每个批次最多占 sandbox.batch.max-parallel 个
+    private ExecutorService batchExecutor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        watchdogExecutor = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "sandbox-watchdog-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger batchCounter = new AtomicInteger();
+        batchExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sandbox-batch-" + batchCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdogExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * 运行 Python 代码：在沙箱容器中执行
+     */
+
+    // 在 Docker 中，挂载卷（Volumes） 是宿主机和容器之间共享文件和目录的一种机制。
+    // 通过挂载卷，容器内的应用可以访问宿主机上的文件系统，而无需关心宿主机的具体路径。
+    public String runPythonCodeInNewContainer(String code) {
+        OutputCollector collector = new OutputCollector();
+        runPythonCodeInNewContainer(code, collector);
+        return collector.getOutput();
+    }
+
+    /**
+     *  流式版本：输出边读边回调给 listener，返回执行结论和退出码
+     */
+    public RunResult runPythonCodeInNewContainer(String code, OutputListener listener) {
+        return runPythonCodeInNewContainer(code, null, listener);
+    }
+
+    /**
+     *  带标准输入的版本，stdin 为 null 时程序读不到任何输入
+     */
+    public RunResult runPythonCodeInNewContainer(String code, String stdin, OutputListener listener) {
+        return runInSandbox("python", "script.py", code, stdin, warmRuntime.pythonCommand(), listener);
+    }
+
+
+    /**
+     * 运行 Java 代码：在沙箱容器中执行
+     * 要求用户代码里有 public class Main + main方法
+     */
+    public String runJavaCodeInNewContainer(String code) {
+        OutputCollector collector = new OutputCollector();
+        runJavaCodeInNewContainer(code, collector);
+        return collector.getOutput();
+    }
+
+    public RunResult runJavaCodeInNewContainer(String code, OutputListener listener) {
+        return runJavaCodeInNewContainer(code, null, listener);
+    }
+
+    public RunResult runJavaCodeInNewContainer(String code, String stdin, OutputListener listener) {
+        if (javaCompiler.isAvailable()) {
+            return runJavaPrecompiled(code, stdin, listener);
+        }
+        if (compileCache.isEnabled()) {
+            return runJavaWithCompileCache(code, stdin, listener);
+        }
+        // 一次性执行：javac Main.java && java Main
+        return runInSandbox("java", "Main.java", code, stdin,
+                javacCommand() + " && " + javaRunCommand(), listener);
+    }
+
+    /**
+     *  后端编译的 Java 执行流程：javac 不进沙箱
+     *  在后端 JVM 里（常驻、已预热的编译器）编译，编译失败直接返回 COMPILE_ERROR 和诊断信息，连容器都不用；
+     *  编译成功只把 .class 放进工作目录（不带源码），沙箱里只跑 java Main
+     *  编译缓存启用时同样先查缓存，key 用后端编译器的标识，和沙箱里 javac 的条目分开
+     */
+    private RunResult runJavaPrecompiled(String code, String stdin, OutputListener listener) {
+        try {
+            Workspace workspace = new Workspace();
+            RunResult compiled = compileJava(code, workspace, listener);
+            if (compiled.getVerdict() != Verdict.OK) {
+                return compiled;
+            }
+            putStdin(workspace, stdin);
+            String command = withStdin(javaRunCommand(), stdin);
+
+            SandboxProperties.Language limits = properties.language("java");
+            SandboxContainerPool.PooledContainer container = containerPool.acquire("java");
+            RunResult result = container != null
+                    ? runInPooledContainer(container, workspace, command, limits, listener)
+                    : runInNewContainer("java", workspace, command, limits, listener);
+            result.setDiagnostics(compiled.getDiagnostics());
+            return result;
+
+        } catch (Exception e) {
+            listener.onOutput("Error: " + e.getMessage());
+            return RunResult.systemError();
+        }
+    }
+
+    /**
+     *  用后端编译器把 code 编译到 workspace 的 classes 目录（先查编译缓存），编译错误或警告输出给 listener
+     *  返回 OK（有警告时带上诊断信息）或者 COMPILE_ERROR
+     */
+    private RunResult compileJava(String code, Workspace workspace, OutputListener listener) throws Exception {
+        String key = compileCache.key(code, javaCompiler.getCompilerId());
+        Map<String, byte[]> cachedClasses = new LinkedHashMap<>();
+        JavaCompileCache.Hit hit = compileCache.lookup(key, cachedClasses);
+        if (hit != null) {
+            if (hit.isCompileError()) {
+                listener.onOutput(hit.getCompileOutput());
+                return compileError(hit.getExitCode(), hit.getDiagnostics());
+            }
+            workspace.putAll(CLASSES_DIR, cachedClasses);
+            return new RunResult(Verdict.OK, 0);
+        }
+
+        CompilationResult compiled = javaCompiler.compile(code);
+        if (!compiled.isSuccess()) {
+            listener.onOutput(compiled.getOutput());
+            compileCache.putCompileError(key, compiled.getOutput(), 1, compiled.getDiagnostics());
+            return compileError(1, compiled.getDiagnostics());
+        }
+        Map<String, byte[]> classFiles = compiled.getClassFiles();
+        workspace.putAll(CLASSES_DIR, classFiles);
+        compileCache.putClasses(key, classFiles);
+        RunResult result = new RunResult(Verdict.OK, 0);
+        // 编译警告（比如 Note: ... uses unchecked operations）也要给用户看
+        if (!compiled.getOutput().isEmpty()) {
+            listener.onOutput(compiled.getOutput() + "\n");
+            result.setDiagnostics(compiled.getDiagnostics());
+        }
+        return result;
+    }
+
+    private static RunResult compileError(int exitCode, List<CompileDiagnostic> diagnostics) {
+        RunResult result = new RunResult(Verdict.COMPILE_ERROR, exitCode);
+        result.setDiagnostics(diagnostics);
+        return result;
+    }
+
+    /**
+     *  带编译缓存的 Java 执行流程
+     *  - 命中且当时编译失败：直接返回缓存的编译输出，连容器都不用
+     *  - 命中且编译成功：把缓存的 .class 放进工作目录，只跑 java Main
+     *  - 没命中：在池容器里先单独 exec 一次 javac，把 .class（或编译错误）存进缓存，再 exec java Main。
+     *    分两次 exec 是为了在用户代码运行之前拿到编译产物，避免被用户代码篡改后污染缓存；
+     *    冷启动时不回填缓存，照旧 javac && java 一次跑完
+     */
+    private RunResult runJavaWithCompileCache(String code, String stdin, OutputListener listener) {
+        try {
+            Workspace workspace = new Workspace();
+            // 沙箱里的 javac 版本由镜像决定
+            String key = compileCache.key(code, properties.getImage());
+            Map<String, byte[]> cachedClasses = new LinkedHashMap<>();
+            JavaCompileCache.Hit hit = compileCache.lookup(key, cachedClasses);
+            if (hit != null && hit.isCompileError()) {
+                listener.onOutput(hit.getCompileOutput());
+                return compileError(hit.getExitCode(), null);
+            }
+
+            putStdin(workspace, stdin);
+            String runCommand = withStdin(javaRunCommand(), stdin);
+            SandboxProperties.Language limits = properties.language("java");
+            SandboxContainerPool.PooledContainer container = containerPool.acquire("java");
+            if (hit != null) {
+                workspace.putAll(CLASSES_DIR, cachedClasses);
+                if (container != null) {
+                    return runInPooledContainer(container, workspace, runCommand, limits, listener);
+                }
+                return runInNewContainer("java", workspace, runCommand, limits, listener);
+            }
+
+            workspace.put("Main.java", code);
+            if (container == null) {
+                return runInNewContainer("java", workspace,
+                        javacCommand() + " && " + runCommand, limits, listener);
+            }
+            return compileAndRunInPooledContainer(container, key, workspace, runCommand, limits, listener);
+
+        } catch (Exception e) {
+            listener.onOutput("Error: " + e.getMessage());
+            return RunResult.systemError();
+        }
+    }
+
+    /**
+     *  没命中编译缓存时在池容器里执行：解开工作目录 + javac -> 取回 .class 存缓存 -> java Main
+     */
+    private RunResult compileAndRunInPooledContainer(SandboxContainerPool.PooledContainer container, String key,
+                                                     Workspace workspace, String runCommand,
+                                                     SandboxProperties.Language limits,
+                                                     OutputListener listener) throws Exception {
+        boolean contaminated = true;
+        try {
+            OutputCollector compileOutput = new OutputCollector();
+            RunResult compiled;
+            try (SandboxProcess process = runtime.exec(container.getName(),
+                    Arrays.asList("/bin/bash", "-c", UNPACK_COMMAND + " && " + javacCommand()), Workspace.DIR,
+                    workspace.toTar())) {
+                compiled = execute(process, limits, compileOutput);
+            }
+            if (compiled.getVerdict() != Verdict.OK) {
+                // 编译失败：编译输出原样给用户；javac 本身超时之类的不缓存
+                listener.onOutput(compileOutput.getOutput());
+                if (compiled.getVerdict() == Verdict.RUNTIME_ERROR) {
+                    compileCache.putCompileError(key, compileOutput.getOutput(), compiled.getExitCode());
+                    contaminated = false;
+                    return compileError(compiled.getExitCode(), null);
+                }
+                return compiled;
+            }
+            // 编译成功：这时用户代码还没跑过，取回的 .class 是干净的
+            compileCache.putClasses(key, readDirectory(container.getName(), CLASSES_DIR));
+            // javac 的警告（比如 Note: ... uses unchecked operations）也要给用户看
+            if (!compileOutput.getOutput().isEmpty()) {
+                listener.onOutput(compileOutput.getOutput() + "\n");
+            }
+
+            try (SandboxProcess process = runtime.exec(container.getName(),
+                    Arrays.asList("/bin/bash", "-c", runCommand), Workspace.DIR)) {
+                RunResult result = execute(process, limits, listener);
+                contaminated = result.getVerdict() == Verdict.TIMEOUT || result.getVerdict() == Verdict.OUTPUT_LIMIT;
+                return result;
+            }
+        } finally {
+            containerPool.release(container, contaminated);
+        }
+    }
+
+    /**
+     *  把容器里 /workspace/dir 下的文件读回内存（在容器里 tar -c，从 exec 的输出读）
+     *  不用 copyFrom：docker 的归档接口读不到 tmpfs 上的文件
+     */
+    private Map<String, byte[]> readDirectory(String containerId, String dir) throws IOException, InterruptedException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        int exitCode;
+        try (SandboxProcess process = runtime.exec(containerId,
+                Arrays.asList("/bin/bash", "-c", "tar -cf - -C " + dir + " . 2>/dev/null"), Workspace.DIR)) {
+            InputStream output = process.getOutput();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = output.read(buffer)) != -1) {
+                tar.write(buffer, 0, n);
+            }
+            exitCode = process.waitFor();
+        }
+        if (exitCode != 0) {
+            throw new IOException("failed to read " + dir + " from container: exit code " + exitCode);
+        }
+        return TarArchive.readFiles(tar.toByteArray(), 0);
+    }
+
+    private String javaRunCommand() {
+        return warmRuntime.javaCommand(CLASSES_DIR);
+    }
+
+    private String javacCommand() {
+        String options = compileCache.getJavacOptions();
+        return "javac " + (options == null || options.trim().isEmpty() ? "" : options.trim() + " ")
+                + "-d " + CLASSES_DIR + " Main.java";
+    }
+
+    /**
+     *  批量执行：编译一次，所有测试用例在同一个沙箱里跑
+     *  - 每个用例的 stdin 写成 cases/<i>.in，和代码（Java 是编译好的 .class）一起放进工作目录
+     *  - 借一个池容器（借不到就临时起一个常驻容器），工作目录一次解进去；后端编译器不可用时先在容器里 javac 一次
+     *  - 同时最多 sandbox.batch.max-parallel 个用例在这个容器里并发 exec，共享容器的 CPU / 内存限制
+     *  - 每个用例外面套一层 timeout，按用例自己的时间限制在容器里杀进程（只断开 exec 的话进程还会留在容器里，
+     *    拖慢并发跑的其他用例），再套一层 GNU time 记下墙钟时间和峰值 RSS
+     */
+    public BatchResult runBatch(String language, String code, List<TestCase> cases) {
+        String lang = "java".equalsIgnoreCase(language) ? "java" : "python";
+        Path tempDirInContainer = null;
+        try {
+            Workspace workspace = new Workspace();
+            for (int i = 0; i < cases.size(); i++) {
+                String stdin = cases.get(i).getStdin();
+                workspace.put(CASES_DIR + "/" + i + ".in", stdin == null ? "" : stdin);
+            }
+
+            String compileCommand = null;
+            String runCommand;
+            if (lang.equals("java")) {
+                runCommand = javaRunCommand();
+                if (javaCompiler.isAvailable()) {
+                    OutputCollector compileOutput = new OutputCollector();
+                    RunResult compiled = compileJava(code, workspace, compileOutput);
+                    if (compiled.getVerdict() != Verdict.OK) {
+                        BatchResult result = new BatchResult(compiled.getVerdict());
+                        result.setOutput(compileOutput.getOutput());
+                        result.setDiagnostics(compiled.getDiagnostics());
+                        return result;
+                    }
+                } else {
+                    workspace.put("Main.java", code);
+                    compileCommand = javacCommand();
+                }
+            } else {
+                workspace.put("script.py", code);
+                runCommand = warmRuntime.pythonCommand();
+            }
+
+            // 预热运行时的命令是 if/else，写成脚本才能整体套在 time / timeout 后面
+            workspace.put(RUN_SCRIPT, runCommand + "\n");
+            runCommand = "/bin/bash " + RUN_SCRIPT;
+
+            SandboxProperties.Language limits = properties.language(lang);
+            SandboxContainerPool.PooledContainer container = containerPool.acquire(lang);
+            if (container != null) {
+                boolean contaminated = true;
+                try {
+                    unpack(container.getName(), workspace, limits);
+                    BatchResult result = runCases(container.getName(), lang, compileCommand, runCommand, cases, limits);
+                    contaminated = result.getCases().stream().anyMatch(c ->
+                            c.getVerdict() == Verdict.TIMEOUT || c.getVerdict() == Verdict.OUTPUT_LIMIT);
+                    return result;
+                } finally {
+                    containerPool.release(container, contaminated);
+                }
+            }
+
+            // 冷启动：相当于 docker run -d --tmpfs /workspace ... sleep infinity（或 zygote），再把工作目录解进去，跑完删掉；
+            // bind 模式下改成 -v <宿主机路径>:/workspace
+            String containerName = "sandbox_" + lang + "_" + UUID.randomUUID().toString().replaceAll("-", "");
+            ContainerSpec spec = new ContainerSpec()
+                    .setName(containerName)
+                    .setImage(properties.getImage())
+                    .setCommand(warmRuntime.containerCommand(lang))
+                    .setWorkDir(Workspace.DIR)
+                    .setLimits(limits.getCpus(), limits.getMemoryMb(), limits.getPidsLimit());
+            if (isStreamDelivery()) {
+                Workspace.mountTmpfs(spec, properties.getWorkspace().getTmpfsSizeMb());
+            } else {
+                tempDirInContainer = Files.createTempDirectory(Paths.get(properties.getTempRoot()), lang + "_batch_");
+                workspace.writeTo(tempDirInContainer);
+                spec.addBind(hostDir(tempDirInContainer) + ":" + Workspace.DIR);
+            }
+            runtime.start(spec);
+            try {
+                if (isStreamDelivery()) {
+                    unpack(containerName, workspace, limits);
+                }
+                return runCases(containerName, lang, compileCommand, runCommand, cases, limits);
+            } finally {
+                runtime.remove(containerName);
+            }
+
+        } catch (Exception e) {
+            BatchResult result = new BatchResult(Verdict.SYSTEM_ERROR);
+            result.setOutput("Error: " + e.getMessage());
+            return result;
+        } finally {
+            deleteRecursively(tempDirInContainer);
+        }
+    }
+
+    /**
+     *  在已经准备好工作目录的容器里（必要时先编译）并发跑所有用例，最后一次性读回每个用例的资源统计
+     */
+    private BatchResult runCases(String containerId, String language, String compileCommand, String runCommand,
+                                 List<TestCase> cases, SandboxProperties.Language limits) throws Exception {
+        if (compileCommand != null) {
+            OutputCollector compileOutput = new OutputCollector();
+            RunResult compiled;
+            try (SandboxProcess process = runtime.exec(containerId,
+                    Arrays.asList("/bin/bash", "-c", compileCommand), Workspace.DIR)) {
+                compiled = execute(process, limits, compileOutput);
+            }
+            if (compiled.getVerdict() != Verdict.OK) {
+                BatchResult result = new BatchResult(compiled.getVerdict() == Verdict.RUNTIME_ERROR
+                        ? Verdict.COMPILE_ERROR : compiled.getVerdict());
+                result.setOutput(compileOutput.getOutput());
+                return result;
+            }
+        }
+
+        int total = cases.size();
+        CaseResult[] results = new CaseResult[total];
+        AtomicInteger next = new AtomicInteger();
+        // 常驻 JVM 一次只能跑一个程序，用例只能串行
+        int parallel = warmRuntime.supportsParallelRuns(language) ? properties.getBatch().getMaxParallel() : 1;
+        int workers = Math.max(1, Math.min(parallel, total));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            futures.add(batchExecutor.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    results[i] = runCase(containerId, runCommand, i, cases.get(i), limits);
+                }
+                return null;
+            }));
+        }
+        // 等所有 worker 都结束再往外抛，避免容器被归还以后还有用例在里面跑
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        readCaseStats(containerId, results, limits);
+        BatchResult result = new BatchResult(Verdict.OK);
+        result.setCases(new ArrayList<>(Arrays.asList(results)));
+        result.setPassed((int) result.getCases().stream().filter(c -> c.getVerdict() == Verdict.OK).count());
+        return result;
+    }
+
+    /**
+     *  跑一个用例。结论：
+     *  - 容器里的 timeout 到点（退出码 124 / 137 且耗时超过限制），或者兜底看门狗触发 -> TIMEOUT
+     *  - 输出超限 -> OUTPUT_LIMIT
+     *  - 退出码 0：没有期望输出 -> OK，有期望输出就比较（忽略行尾空白和末尾空行）-> OK / WRONG_ANSWER
+     *  - 退出码 137 或输出里有 MemoryError -> MEMORY_LIMIT，其他非 0 -> RUNTIME_ERROR
+     */
+    private CaseResult runCase(String containerId, String runCommand, int index, TestCase testCase,
+                               SandboxProperties.Language limits) throws IOException, InterruptedException {
+        long timeLimitMs = testCase.getTimeLimit() > 0
+                ? Math.min(testCase.getTimeLimit(), limits.getTimeLimitMs()) : limits.getTimeLimitMs();
+        String stat = CASES_DIR + "/" + index + ".stat";
+        // 老镜像里可能没有 GNU time，那就只是拿不到内存数据；
+        // 走 zygote 时 GNU time 量到的只是客户端，真正的用户进程的统计由 zyrun 写到 ZYGOTE_STAT
+        String command = "T=; [ -x /usr/bin/time ] && T=\"/usr/bin/time -f %e,%M -o " + stat + "\"; "
+                + "export ZYGOTE_STAT=" + CASES_DIR + "/" + index + ".wstat; "
+                + "exec $T timeout -k 1 " + String.format(Locale.ROOT, "%.3f", timeLimitMs / 1000.0) + " "
+                + runCommand + " < " + CASES_DIR + "/" + index + ".in";
+
+        StringBuilder raw = new StringBuilder();
+        OutputLimiter output = new OutputLimiter(raw::append, limits.getMaxOutputChars());
+        AtomicBoolean timedOut = new AtomicBoolean();
+        long start = System.nanoTime();
+        int exitCode;
+        try (SandboxProcess process = runtime.exec(containerId,
+                Arrays.asList("/bin/bash", "-c", command), Workspace.DIR)) {
+            pump(process, output, timeLimitMs + CASE_WATCHDOG_GRACE_MS, timedOut);
+            exitCode = process.waitFor();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        CaseResult result = new CaseResult(index);
+        result.setOutput(raw.toString());
+        result.setExitCode(exitCode);
+        result.setTruncated(output.isTruncated());
+        result.setTimeMs(elapsedMs);
+        if (timedOut.get() || ((exitCode == TIMEOUT_EXIT_CODE || exitCode == OOM_KILLED_EXIT_CODE)
+                && elapsedMs >= timeLimitMs)) {
+            result.setVerdict(Verdict.TIMEOUT);
+        } else if (output.isTruncated()) {
+            result.setVerdict(Verdict.OUTPUT_LIMIT);
+        } else if (exitCode == 0) {
+            boolean accepted = testCase.getExpectedOutput() == null
+                    || normalizeOutput(raw.toString()).equals(normalizeOutput(testCase.getExpectedOutput()));
+            result.setVerdict(accepted ? Verdict.OK : Verdict.WRONG_ANSWER);
+        } else if (exitCode == OOM_KILLED_EXIT_CODE || output.isMemoryError()) {
+            result.setVerdict(Verdict.MEMORY_LIMIT);
+        } else {
+            result.setVerdict(Verdict.RUNTIME_ERROR);
+        }
+        return result;
+    }
+
+    /**
+     *  读回 GNU time 写的 cases/<i>.stat（最后一行是 "秒数,峰值RSS(KB)"），
+     *  有的话用它的耗时代替后端测的耗时（不含 exec 本身的开销）。
+     *  zyrun 写的 cases/<i>.wstat 格式相同、排在后面，覆盖前者（峰值 RSS 拿不到时是 -1）
+     */
+    private void readCaseStats(String containerId, CaseResult[] results,
+                               SandboxProperties.Language limits) throws IOException, InterruptedException {
+        OutputCollector stats = new OutputCollector();
+        try (SandboxProcess process = runtime.exec(containerId, Arrays.asList("/bin/bash", "-c",
+                "cd " + CASES_DIR + " && for f in *.stat *.wstat; do [ -f \"$f\" ] && echo \"${f%.*} $(tail -n 1 \"$f\")\"; done"),
+                Workspace.DIR)) {
+            execute(process, limits, stats);
+        }
+        for (String line : stats.getOutput().split("\n")) {
+            String[] parts = line.trim().split("[ ,]");
+            if (parts.length != 3) {
+                continue;
+            }
+            try {
+                CaseResult result = results[Integer.parseInt(parts[0])];
+                result.setTimeMs(Math.round(Double.parseDouble(parts[1]) * 1000));
+                result.setMemoryKb(Long.parseLong(parts[2]));
+            } catch (RuntimeException ignore) {
+                // 不是统计行（比如用例自己的进程被杀时 time 写的提示），跳过
+            }
+        }
+    }
+
+    /**
+     *  比较输出前的规范化：统一换行符，去掉每行行尾空白和末尾的空行
+     */
+    private static String normalizeOutput(String output) {
+        StringBuilder normalized = new StringBuilder();
+        for (String line : output.replace("\r\n", "\n").split("\n")) {
+            normalized.append(line.replaceAll("[ \t\r]+$", "")).append('\n');
+        }
+        return normalized.toString().replaceAll("\n+$", "");
+    }
+
+    /**
+     *  python / java 共用的执行流程
+     *  @param language   语言，用来选容器池
+     *  @param fileName   源文件名，例如 script.py / Main.java
+     *  @param stdin      程序的标准输入，可以为 null
+     *  @param command    在容器 /workspace 目录下执行的命令
+     *  @param listener   输出回调
+     *  @return 执行结论和退出码，后端自身出错返回 SYSTEM_ERROR
+     */
+    private RunResult runInSandbox(String language, String fileName, String code, String stdin,
+                                   String command, OutputListener listener) {
+        try {
+            // 1) 工作目录：源文件 script.py 或 Main.java，有输入的话再加上 stdin.txt
+            Workspace workspace = new Workspace().put(fileName, code);
+            putStdin(workspace, stdin);
+            command = withStdin(command, stdin);
+
+            // 2) 优先用池里的预热容器，借不到再冷启动
+            SandboxProperties.Language limits = properties.language(language);
+            SandboxContainerPool.PooledContainer container = containerPool.acquire(language);
+            if (container != null) {
+                return runInPooledContainer(container, workspace, command, limits, listener);
+            }
+            return runInNewContainer(language, workspace, command, limits, listener);
+
+        } catch (Exception e) {
+            listener.onOutput("Error: " + e.getMessage());
+            return RunResult.systemError();
+        }
+    }
+
+    /**
+     *  在预热容器里执行：
+     *  工作目录打成 tar 作为 exec 的 stdin，容器里先 tar -x 解到 /workspace 再执行命令，一次 exec 完成
+     *  执行过程出了异常（docker 本身出错、解包失败等），或者因为超时/超输出被杀掉，
+     *  容器状态不可信（里面可能还有残留进程），归还时标记为被污染，池会销毁重建
+     */
+    private RunResult runInPooledContainer(SandboxContainerPool.PooledContainer container, Workspace workspace,
+                                           String command, SandboxProperties.Language limits,
+                                           OutputListener listener) throws Exception {
+        boolean contaminated = true;
+        try {
+            // 被杀掉时只结束 exec，容器里的残留进程随容器一起销毁
+            try (SandboxProcess process = runtime.exec(container.getName(),
+                    Arrays.asList("/bin/bash", "-c", UNPACK_COMMAND + " && " + command), Workspace.DIR,
+                    workspace.toTar())) {
+                RunResult result = execute(process, limits, listener);
+                contaminated = result.getVerdict() == Verdict.TIMEOUT || result.getVerdict() == Verdict.OUTPUT_LIMIT;
+                return result;
+            }
+        } finally {
+            containerPool.release(container, contaminated);
+        }
+    }
+
+    /**
+     *  冷启动：相当于 docker run --rm -i --tmpfs /workspace ... bash -c "tar -xf - && 命令" < 工作目录.tar
+     *  bind 模式下是 docker run --rm -v <宿主机路径>:/workspace ...
+     */
+    private RunResult runInNewContainer(String language, Workspace workspace, String command,
+                                        SandboxProperties.Language limits, OutputListener listener) throws Exception {
+        String containerName = "sandbox_" + language + "_" + UUID.randomUUID().toString().replaceAll("-", "");
+        // limits：CPU / 内存 / pids 资源限制，见 SandboxProperties.Language
+        // my-runner-image:latest：使用预先构建好的沙箱镜像。
+        ContainerSpec spec = new ContainerSpec()
+                .setName(containerName)
+                .setImage(properties.getImage())
+                .setWorkDir(Workspace.DIR)
+                .setLimits(limits.getCpus(), limits.getMemoryMb(), limits.getPidsLimit());
+
+        if (isStreamDelivery()) {
+            spec.setCommand(Arrays.asList("/bin/bash", "-c", UNPACK_COMMAND + " && " + command))
+                    .setStdin(workspace.toTar());
+            Workspace.mountTmpfs(spec, properties.getWorkspace().getTmpfsSizeMb());
+            // close 时删除容器（效果同 --rm）
+            try (SandboxProcess process = runtime.run(spec)) {
+                return execute(process, limits, listener);
+            }
+        }
+
+        // bind 模式：
+        // /mytemp 目录：
+        // 根据docker-compose.yml，宿主机的 ./tempfiles 目录被挂载到后端容器内的 /mytemp 目录。
+        // 这意味着在容器内 /mytemp 目录下创建的任何文件或目录，都会实际存储在宿主机的 ./tempfiles 目录中。
+        Path tempDirInContainer = Files.createTempDirectory(Paths.get(properties.getTempRoot()), language + "_sandbox_");
+        try {
+            workspace.writeTo(tempDirInContainer);
+            // bind /home/ubuntu/Online-Compiler/tempfiles/py_sandbox_12345:/workspace：将宿主机的临时目录挂载到容器内的 /workspace 目录。
+            spec.setCommand(Arrays.asList("/bin/bash", "-c", command))
+                    .addBind(hostDir(tempDirInContainer) + ":" + Workspace.DIR);
+            try (SandboxProcess process = runtime.run(spec)) {
+                return execute(process, limits, listener);
+            }
+        } finally {
+            deleteRecursively(tempDirInContainer);
+        }
+    }
+
+    /**
+     *  后端容器里的临时目录在宿主机上的路径，例如 /home/ubuntu/Online-Compiler/tempfiles/py_sandbox_12345
+     */
+    private String hostDir(Path tempDirInContainer) {
+        // === 核心：拿到宿主机真实绝对路径，比如 /home/ubuntu/Online-Compiler/tempfiles ===
+        return Paths.get(properties.getHostTempRoot(), tempDirInContainer.getFileName().toString()).toString();
+    }
+
+    private boolean isStreamDelivery() {
+        return !"bind".equalsIgnoreCase(properties.getWorkspace().getDelivery());
+    }
+
+    /**
+     *  在容器里把工作目录解到 /workspace（批量执行时用，之后还要 exec 很多次）
+     */
+    private void unpack(String containerId, Workspace workspace,
+                        SandboxProperties.Language limits) throws IOException, InterruptedException {
+        OutputCollector output = new OutputCollector();
+        RunResult result;
+        try (SandboxProcess process = runtime.exec(containerId,
+                Arrays.asList("/bin/bash", "-c", UNPACK_COMMAND), Workspace.DIR, workspace.toTar())) {
+            result = execute(process, limits, output);
+        }
+        if (result.getVerdict() != Verdict.OK) {
+            throw new IOException("failed to unpack workspace: " + output.getOutput().trim());
+        }
+    }
+
+    /**
+     *  读取沙箱进程的输出，每读到一块就交给 listener，不在内存里攒完整输出；同时执行限制：
+     *  - 墙钟超时：看门狗到点后杀掉进程 -> TIMEOUT
+     *  - 输出超限：截断并立刻杀掉 -> OUTPUT_LIMIT
+     *  - 退出码 137（被 OOM kill）或输出里有 OutOfMemoryError / MemoryError -> MEMORY_LIMIT
+     *  - 其他非 0 退出码 -> RUNTIME_ERROR，退出码追加到输出末尾
+     */
+    private RunResult execute(SandboxProcess process, SandboxProperties.Language limits,
+                              OutputListener listener) throws IOException, InterruptedException {
+        OutputLimiter output = new OutputLimiter(listener, limits.getMaxOutputChars());
+        AtomicBoolean timedOut = new AtomicBoolean();
+        char lastChar = pump(process, output, limits.getTimeLimitMs(), timedOut);
+
+        int exitCode = process.waitFor();
+        String separator = lastChar == '\n' ? "" : "\n";
+        RunResult result = new RunResult();
+        result.setExitCode(exitCode);
+        result.setTruncated(output.isTruncated());
+        if (timedOut.get()) {
+            result.setVerdict(Verdict.TIMEOUT);
+            output.appendNotice(separator + "Time limit exceeded: " + limits.getTimeLimitMs() + " ms\n");
+        } else if (output.isTruncated()) {
+            result.setVerdict(Verdict.OUTPUT_LIMIT);
+        } else if (exitCode == 0) {
+            result.setVerdict(Verdict.OK);
+        } else if (exitCode == OOM_KILLED_EXIT_CODE || output.isMemoryError()) {
+            result.setVerdict(Verdict.MEMORY_LIMIT);
+            output.appendNotice(separator + "Memory limit exceeded: " + limits.getMemoryMb() + " MB\n");
+        } else {
+            result.setVerdict(Verdict.RUNTIME_ERROR);
+            output.appendNotice(separator + "Process exited with error code: " + exitCode + "\n");
+        }
+        return result;
+    }
+
+    /**
+     *  把进程输出一块块交给 output，直到读到 EOF；到了 timeLimitMs（timedOut 置位）或者输出超限就杀掉进程
+     *  返回最后一个输出字符（没有输出时为 '\n'），用来决定追加提示前要不要补换行
+     */
+    private char pump(SandboxProcess process, OutputLimiter output, long timeLimitMs,
+                      AtomicBoolean timedOut) throws IOException {
+        AtomicBoolean killed = new AtomicBoolean();
+        Runnable kill = () -> {
+            if (killed.compareAndSet(false, true)) {
+                process.kill();
+            }
+        };
+        ScheduledFuture<?> watchdog = watchdogExecutor.schedule(() -> {
+            timedOut.set(true);
+            kill.run();
+        }, timeLimitMs, TimeUnit.MILLISECONDS);
+
+        char lastChar = '\n';
+        try {
+            Reader reader = new InputStreamReader(process.getOutput(), StandardCharsets.UTF_8);
+            char[] buffer = new char[4096];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                if (n > 0) {
+                    output.onOutput(new String(buffer, 0, n));
+                    lastChar = buffer[n - 1];
+                }
+                if (output.isTruncated()) {
+                    kill.run();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // 被看门狗杀掉时流会被关闭，这里不算错误
+            if (!killed.get()) {
+                throw e;
+            }
+        } finally {
+            watchdog.cancel(false);
+        }
+        return lastChar;
+    }
+
+    /**
+     *  有 stdin 时放到工作目录的 stdin.txt，命令里用重定向喂给程序
+     */
+    private static void putStdin(Workspace workspace, String stdin) {
+        if (stdin != null) {
+            workspace.put(STDIN_FILE, stdin);
+        }
+    }
+
+    private static String withStdin(String command, String stdin) {
+        return stdin == null ? command : command + " < " + STDIN_FILE;
+    }
+
+    private void deleteRecursively(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try {
+            Files.walk(dir)
+                    .sorted((p1, p2) -> p2.compareTo(p1))
+                    .forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException ignore) {}
+                    });
+        } catch (IOException ignore) {}
+    }
+}
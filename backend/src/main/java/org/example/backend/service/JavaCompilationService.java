@@ -0,0 +1,292 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.CompileDiagnostic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  在后端进程里用 javax.tools 编译用户的 Java 代码
+ *  以前每次请求都在冷容器里起一个新的 javac JVM，光编译器自己的 JIT 预热就要好几秒；
+ *  这里编译器常驻在后端 JVM 里，启动时先预热，源码和 .class 全在内存里，
+ *  编译好的字节码再写进沙箱工作目录，沙箱里只需要 java Main
+ *
+ *  并发编译数有上限：每个并发槽位对应一个 StandardJavaFileManager（打开 JDK 模块镜像比较贵，复用它），
+ *  槽位用完了后面的请求就排队
+ */
+@Service
+public class JavaCompilationService {
+
+    private static final Logger log = LoggerFactory.getLogger(JavaCompilationService.class);
+
+    private static final String WARMUP_SOURCE = "import java.util.*;\n\n"
+            + "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        List<Integer> list = new ArrayList<>();\n"
+            + "        for (int i = 0; i < 10; i++) list.add(i * i);\n"
+            + "        System.out.println(list.stream().mapToInt(Integer::intValue).sum());\n"
+            + "    }\n"
+            + "}\n";
+
+    @Autowired
+    private SandboxProperties properties;
+
+    private JavaCompiler compiler;
+    // 空闲的 file manager，队列大小就是最大并发编译数
+    private BlockingQueue<StandardJavaFileManager> fileManagers;
+    private List<StandardJavaFileManager> allFileManagers;
+
+    @PostConstruct
+    public void init() {
+        SandboxProperties.JavaCompiler config = properties.getJavaCompiler();
+        if (!config.isEnabled()) {
+            return;
+        }
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            // 跑在 JRE 上没有编译器，退回容器里 javac
+            log.warn("no system Java compiler available, falling back to javac in the sandbox");
+            return;
+        }
+        int slots = config.effectiveMaxConcurrent();
+        fileManagers = new ArrayBlockingQueue<>(slots);
+        allFileManagers = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+            fileManagers.add(fileManager);
+            allFileManagers.add(fileManager);
+        }
+
+        // 后台预热，不拖慢启动
+        Thread warmup = new Thread(this::warmup, "java-compiler-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (allFileManagers == null) {
+            return;
+        }
+        for (StandardJavaFileManager fileManager : allFileManagers) {
+            try {
+                fileManager.close();
+            } catch (IOException ignore) {}
+        }
+    }
+
+    /**
+     *  配置里启用了、并且当前 JVM 确实带编译器
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     *  编译器标识（JDK 版本 + 编译目标 + 参数），参与编译缓存 key 的计算
+     */
+    public String getCompilerId() {
+        return "javax.tools:" + System.getProperty("java.version")
+                + ":release=" + properties.getJavaCompiler().getRelease()
+                + ":" + properties.getCompileCache().getJavacOptions();
+    }
+
+    /**
+     *  编译单个 Main.java
+     */
+    public CompilationResult compile(String code) throws InterruptedException {
+        return compile(Collections.singletonMap("Main.java", code));
+    }
+
+    /**
+     *  编译一组源文件（文件名 -> 源码），全程在内存里
+     */
+    public CompilationResult compile(Map<String, String> sources) throws InterruptedException {
+        StandardJavaFileManager standard = fileManagers.take();
+        try {
+            List<JavaFileObject> units = new ArrayList<>();
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                units.add(new SourceObject(source.getKey(), source.getValue()));
+            }
+            MemoryFileManager fileManager = new MemoryFileManager(standard);
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            Boolean ok = compiler.getTask(null, fileManager, collector, options(), null, units).call();
+
+            List<CompileDiagnostic> diagnostics = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> d : collector.getDiagnostics()) {
+                diagnostics.add(new CompileDiagnostic(d.getKind().name(),
+                        d.getSource() != null ? fileName(d.getSource()) : null,
+                        d.getLineNumber() == Diagnostic.NOPOS ? -1 : d.getLineNumber(),
+                        d.getColumnNumber() == Diagnostic.NOPOS ? -1 : d.getColumnNumber(),
+                        d.getMessage(Locale.ROOT)));
+            }
+            boolean success = Boolean.TRUE.equals(ok);
+            return new CompilationResult(success, success ? fileManager.getClasses() : Collections.emptyMap(),
+                    diagnostics, format(diagnostics, sources));
+        } finally {
+            fileManagers.offer(standard);
+        }
+    }
+
+    private List<String> options() {
+        List<String> options = new ArrayList<>(Arrays.asList(
+                "--release", String.valueOf(properties.getJavaCompiler().getRelease()),
+                "-encoding", "UTF-8",
+                // 不跑注解处理器：用户代码不需要，也省掉扫描 classpath 的时间
+                "-proc:none"));
+        String extra = properties.getCompileCache().getJavacOptions();
+        if (extra != null && !extra.trim().isEmpty()) {
+            options.addAll(Arrays.asList(extra.trim().split("\\s+")));
+        }
+        return options;
+    }
+
+    private void warmup() {
+        int iterations = properties.getJavaCompiler().getWarmupIterations();
+        long start = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < iterations; i++) {
+                compile(WARMUP_SOURCE);
+            }
+            log.info("java compiler warmed up with {} compilations in {} ms",
+                    iterations, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("java compiler warmup failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     *  拼成和 javac 命令行一样的输出格式：
+     *  Main.java:3: error: ';' expected
+     *          int x = 1
+     *                   ^
+     *  1 error
+     */
+    private static String format(List<CompileDiagnostic> diagnostics, Map<String, String> sources) {
+        StringBuilder out = new StringBuilder();
+        int errors = 0;
+        int warnings = 0;
+        for (CompileDiagnostic d : diagnostics) {
+            String kind;
+            if ("ERROR".equals(d.getKind())) {
+                kind = "error";
+                errors++;
+            } else if ("WARNING".equals(d.getKind()) || "MANDATORY_WARNING".equals(d.getKind())) {
+                kind = "warning";
+                warnings++;
+            } else {
+                kind = "note";
+            }
+            if (d.getSource() != null && d.getLine() > 0) {
+                out.append(d.getSource()).append(':').append(d.getLine()).append(": ");
+            }
+            out.append(kind).append(": ").append(d.getMessage()).append('\n');
+            String line = sourceLine(sources.get(d.getSource()), d.getLine());
+            if (line != null && d.getColumn() > 0) {
+                out.append(line).append('\n');
+                for (long i = 1; i < d.getColumn(); i++) {
+                    out.append(i - 1 < line.length() && line.charAt((int) i - 1) == '\t' ? '\t' : ' ');
+                }
+                out.append("^\n");
+            }
+        }
+        if (errors > 0) {
+            out.append(errors).append(errors == 1 ? " error" : " errors").append('\n');
+        }
+        if (warnings > 0) {
+            out.append(warnings).append(warnings == 1 ? " warning" : " warnings").append('\n');
+        }
+        return out.toString().trim();
+    }
+
+    private static String sourceLine(String source, long lineNumber) {
+        if (source == null || lineNumber <= 0) {
+            return null;
+        }
+        String[] lines = source.split("\r?\n", -1);
+        return lineNumber <= lines.length ? lines[(int) lineNumber - 1] : null;
+    }
+
+    private static String fileName(JavaFileObject file) {
+        String path = file.toUri().getPath();
+        return path != null && path.startsWith("/") ? path.substring(1) : file.getName();
+    }
+
+    /**
+     *  内存里的源文件
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+        private final String code;
+
+        SourceObject(String fileName, String code) {
+            super(URI.create("string:///" + fileName), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     *  把编译输出的 .class 留在内存里，其他（JDK 类库的查找等）交给标准 file manager
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes = new ConcurrentHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+
+        Map<String, byte[]> getClasses() {
+            return new LinkedHashMap<>(classes);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package org.example.backend.service;
+
+import com.alibaba.fastjson.JSON;
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.CompileDiagnostic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ *  Java 编译结果缓存（按内容寻址）
+ *  key = sha256(编译器标识 + javac 参数 + 源码)：在沙箱里编译时编译器标识就是镜像名（镜像决定了 javac 版本），
+ *  在后端编译时是 JDK 版本 + 编译目标，两条路径的条目互不混用
+ *  每个 key 一个目录：编译成功存 classes/ 下的 .class，编译失败存编译输出、退出码和诊断信息
+ *  目录总大小超过上限时按最近最少使用淘汰
+ *
+ *  课堂场景下同一份代码（模板代码、只改了输入的重跑）会被反复提交，命中缓存就可以跳过 javac 直接 java Main
+ */
+@Component
+public class JavaCompileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(JavaCompileCache.class);
+
+    private static final String CLASSES_DIR = "classes";
+    private static final String ERROR_FILE = "compile-error.txt";
+    private static final String EXIT_CODE_FILE = "exit-code";
+    private static final String DIAGNOSTICS_FILE = "diagnostics.json";
+
+    @Autowired
+    private SandboxProperties properties;
+
+    // key -> 条目占用的字节数，accessOrder=true 让迭代顺序就是 LRU 顺序
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Path root;
+
+    /**
+     *  命中的缓存条目
+     */
+    public static class Hit {
+        private final boolean compileError;
+        private final String compileOutput;
+        private final int exitCode;
+        private final List<CompileDiagnostic> diagnostics;
+
+        Hit(boolean compileError, String compileOutput, int exitCode, List<CompileDiagnostic> diagnostics) {
+            this.compileError = compileError;
+            this.compileOutput = compileOutput;
+            this.exitCode = exitCode;
+            this.diagnostics = diagnostics;
+        }
+
+        /**
+         *  true 表示这份源码编译失败，compileOutput 是当时的编译输出
+         */
+        public boolean isCompileError() {
+            return compileError;
+        }
+
+        public String getCompileOutput() {
+            return compileOutput;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         *  编译诊断信息，只有后端编译的条目才有，否则为 null
+         */
+        public List<CompileDiagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        root = Paths.get(properties.getCompileCache().getDir());
+        Files.createDirectories(root);
+        // 重启后接着用以前的缓存，按修改时间恢复 LRU 顺序
+        List<Path> existing;
+        try (Stream<Path> list = Files.list(root)) {
+            existing = list.filter(Files::isDirectory)
+                    .sorted(Comparator.comparingLong(p -> p.toFile().lastModified()))
+                    .collect(Collectors.toList());
+        }
+        synchronized (this) {
+            for (Path dir : existing) {
+                long size = sizeOf(dir);
+                entries.put(dir.getFileName().toString(), size);
+                totalBytes += size;
+            }
+            evictIfNeeded();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.getCompileCache().isEnabled();
+    }
+
+    public String getJavacOptions() {
+        return properties.getCompileCache().getJavacOptions();
+    }
+
+    /**
+     *  计算缓存 key，compilerId 标识编译器（沙箱镜像名或者后端编译器）
+     */
+    public String key(String source, String compilerId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(getJavacOptions().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     *  查缓存。命中编译成功的条目时，顺便把 .class 拷到 classesDest 下（在锁里拷，避免拷到一半被淘汰）
+     *  没命中返回 null
+     */
+    public Hit lookup(String key, Path classesDest) {
+        return lookup(key, classesDest, null);
+    }
+
+    /**
+     *  同上，命中时把 .class 读到 classesDest 里（相对 classes 目录的路径 -> 字节码），不落盘
+     */
+    public Hit lookup(String key, Map<String, byte[]> classesDest) {
+        return lookup(key, null, classesDest);
+    }
+
+    private synchronized Hit lookup(String key, Path classesDir, Map<String, byte[]> classFiles) {
+        if (!isEnabled() || entries.get(key) == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Path entry = root.resolve(key);
+        try {
+            Path errorFile = entry.resolve(ERROR_FILE);
+            Hit hit;
+            if (Files.exists(errorFile)) {
+                String output = new String(Files.readAllBytes(errorFile), StandardCharsets.UTF_8);
+                int exitCode = Integer.parseInt(new String(Files.readAllBytes(entry.resolve(EXIT_CODE_FILE)),
+                        StandardCharsets.UTF_8).trim());
+                Path diagnosticsFile = entry.resolve(DIAGNOSTICS_FILE);
+                List<CompileDiagnostic> diagnostics = Files.exists(diagnosticsFile)
+                        ? JSON.parseArray(new String(Files.readAllBytes(diagnosticsFile), StandardCharsets.UTF_8),
+                                CompileDiagnostic.class)
+                        : null;
+                hit = new Hit(true, output, exitCode, diagnostics);
+            } else {
+                if (classesDir != null) {
+                    copyTree(entry.resolve(CLASSES_DIR), classesDir);
+                } else {
+                    readTree(entry.resolve(CLASSES_DIR), classFiles);
+                }
+                hit = new Hit(false, null, 0, null);
+            }
+            entry.toFile().setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+            return hit;
+        } catch (IOException | RuntimeException e) {
+            // 条目损坏了，删掉当成没命中
+            log.warn("dropping broken compile cache entry {}: {}", key, e.getMessage());
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     *  缓存编译成功的结果：classesDir 下的所有 .class
+     */
+    public synchronized void putClasses(String key, Path classesDir) {
+        if (!isEnabled() || entries.containsKey(key)) {
+            return;
+        }
+        Path entry = root.resolve(key);
+        try {
+            copyTree(classesDir, entry.resolve(CLASSES_DIR));
+            add(key, entry);
+        } catch (IOException e) {
+            log.warn("failed to store compile cache entry {}: {}", key, e.getMessage());
+            deleteTree(entry);
+        }
+    }
+
+    /**
+     *  同上，.class 在内存里：相对 classes 目录的路径 -> 字节码
+     */
+    public synchronized void putClasses(String key, Map<String, byte[]> classFiles) {
+        if (!isEnabled() || entries.containsKey(key)) {
+            return;
+        }
+        Path entry = root.resolve(key);
+        try {
+            Path classesDir = Files.createDirectories(entry.resolve(CLASSES_DIR));
+            for (Map.Entry<String, byte[]> file : classFiles.entrySet()) {
+                Path target = classesDir.resolve(file.getKey());
+                Files.createDirectories(target.getParent());
+                Files.write(target, file.getValue());
+            }
+            add(key, entry);
+        } catch (IOException e) {
+            log.warn("failed to store compile cache entry {}: {}", key, e.getMessage());
+            deleteTree(entry);
+        }
+    }
+
+    /**
+     *  缓存编译失败的结果：编译输出和退出码
+     */
+    public void putCompileError(String key, String compileOutput, int exitCode) {
+        putCompileError(key, compileOutput, exitCode, null);
+    }
+
+    /**
+     *  缓存编译失败的结果，带上后端编译器给出的诊断信息
+     */
+    public synchronized void putCompileError(String key, String compileOutput, int exitCode,
+                                             List<CompileDiagnostic> diagnostics) {
+        if (!isEnabled() || entries.containsKey(key)) {
+            return;
+        }
+        Path entry = root.resolve(key);
+        try {
+            Files.createDirectories(entry);
+            Files.write(entry.resolve(ERROR_FILE), compileOutput.getBytes(StandardCharsets.UTF_8));
+            Files.write(entry.resolve(EXIT_CODE_FILE), String.valueOf(exitCode).getBytes(StandardCharsets.UTF_8));
+            if (diagnostics != null) {
+                Files.write(entry.resolve(DIAGNOSTICS_FILE), JSON.toJSONString(diagnostics).getBytes(StandardCharsets.UTF_8));
+            }
+            add(key, entry);
+        } catch (IOException e) {
+            log.warn("failed to store compile cache entry {}: {}", key, e.getMessage());
+            deleteTree(entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    private void add(String key, Path entry) throws IOException {
+        long size = sizeOf(entry);
+        entries.put(key, size);
+        totalBytes += size;
+        evictIfNeeded();
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteTree(root.resolve(key));
+    }
+
+    private void evictIfNeeded() {
+        long maxBytes = properties.getCompileCache().getMaxSizeMb() * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteTree(root.resolve(eldest.getKey()));
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            return walk.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void copyTree(Path from, Path to) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(from)) {
+            paths = walk.sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Path target = to.resolve(from.relativize(path).toString());
+            if (Files.isDirectory(path)) {
+                Files.createDirectories(target);
+            } else {
+                Files.copy(path, target);
+            }
+        }
+    }
+
+    private static void readTree(Path from, Map<String, byte[]> files) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(from)) {
+            paths = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            files.put(from.relativize(path).toString().replace('\\', '/'), Files.readAllBytes(path));
+        }
+    }
+
+    private static void deleteTree(Path dir) {
+        File[] children = dir.toFile().listFiles();
+        if (children != null) {
+            Arrays.stream(children).forEach(child -> deleteTree(child.toPath()));
+        }
+        dir.toFile().delete();
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.backend.service;
+
+/**
+ *  执行器已满（并发沙箱 + 排队都到上限）时拒绝新任务
+ *  由 controller 统一转成 429 Too Many Requests + Retry-After
+ */
+public class JobRejectedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public JobRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
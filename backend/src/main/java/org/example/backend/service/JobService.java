@@ -0,0 +1,171 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.BatchResult;
+import org.example.backend.model.Job;
+import org.example.backend.model.JobStatus;
+import org.example.backend.model.RunResult;
+import org.example.backend.model.TestCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  异步执行用户代码
+ *  所有沙箱执行都经过这里的有界线程池：并发数默认等于 CPU 核数，排队数有上限，
+ *  满了直接抛 JobRejectedException，不会无限 fork docker 进程把宿主机拖垮，
+ *  也不会占着 Tomcat 的请求线程等 docker 跑完
+ */
+@Service
+public class JobService {
+
+    @Autowired
+    private SandboxProperties properties;
+
+    @Autowired
+    private CodeRunnerService codeRunnerService;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+    // 定期清理过期的任务结果
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void start() {
+        SandboxProperties.Jobs config = properties.getJobs();
+        int threads = config.effectiveThreads();
+        AtomicInteger counter = new AtomicInteger();
+        // 核心线程数 = 最大线程数，队列有界，满了用默认的 AbortPolicy 抛 RejectedExecutionException
+        executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "sandbox-job-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sandbox-job-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000, config.getResultTtlMs() / 10);
+        cleaner.scheduleWithFixedDelay(this::removeExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        cleaner.shutdownNow();
+    }
+
+    /**
+     *  提交一个任务，立刻返回（此时状态是 QUEUED）
+     *  执行器满了抛 JobRejectedException
+     */
+    public Job submit(String code, String language) {
+        return submit(code, language, null);
+    }
+
+    /**
+     *  流式提交：输出直接交给 listener，不在 job 里保存完整输出（job 的 output 为空字符串）
+     *  listener 为 null 时和普通提交一样，把输出收集起来
+     */
+    public Job submit(String code, String language, OutputListener listener) {
+        return submit(code, language, null, listener);
+    }
+
+    /**
+     *  带标准输入提交，stdin 可以为 null
+     */
+    public Job submit(String code, String language, String stdin, OutputListener listener) {
+        Job job = new Job(UUID.randomUUID().toString().replaceAll("-", ""), language, code, stdin);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> execute(job, listener));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw rejected();
+        }
+        return job;
+    }
+
+    /**
+     *  提交一个批量执行，和普通任务共用同一个有界执行器（整个批次只占一个执行槽位），结果不登记成 job
+     *  执行器满了抛 JobRejectedException
+     */
+    public CompletableFuture<BatchResult> submitBatch(String code, String language, List<TestCase> cases) {
+        try {
+            return CompletableFuture.supplyAsync(() -> codeRunnerService.runBatch(code, language, cases), executor);
+        } catch (RejectedExecutionException e) {
+            throw rejected();
+        }
+    }
+
+    private JobRejectedException rejected() {
+        return new JobRejectedException("Too many pending runs, please retry later",
+                properties.getJobs().getRetryAfterSeconds());
+    }
+
+    /**
+     *  查询任务，不存在或已过期返回 null
+     */
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     *  当前在排队的任务数
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     *  当前正在执行的任务数
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    private void execute(Job job, OutputListener listener) {
+        job.markRunning();
+        try {
+            if (listener != null) {
+                RunResult result = codeRunnerService.runCodeSand(job.getCode(), job.getLanguage(), job.getStdin(), listener);
+                job.complete(JobStatus.COMPLETED, "", result);
+            } else {
+                OutputCollector collector = new OutputCollector();
+                RunResult result = codeRunnerService.runCodeSand(job.getCode(), job.getLanguage(), job.getStdin(), collector);
+                job.complete(JobStatus.COMPLETED, collector.getOutput(), result);
+            }
+        } catch (Exception e) {
+            if (listener != null) {
+                listener.onOutput("Error: " + e.getMessage());
+            }
+            job.complete(JobStatus.FAILED, "Error: " + e.getMessage(), RunResult.systemError());
+        }
+    }
+
+    private void removeExpired() {
+        long deadline = System.currentTimeMillis() - properties.getJobs().getResultTtlMs();
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishedAt() < deadline);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.backend.service;
+
+/**
+ *  把输出全部收集起来，给同步返回完整字符串的场景用
+ */
+public class OutputCollector implements OutputListener {
+
+    private final StringBuilder outputBuilder = new StringBuilder();
+
+    @Override
+    public void onOutput(String chunk) {
+        outputBuilder.append(chunk);
+    }
+
+    /**
+     *  收集到的输出，首尾空白去掉（和以前按行拼接后 trim 的结果一致）
+     */
+    public String getOutput() {
+        return outputBuilder.toString().trim();
+    }
+}
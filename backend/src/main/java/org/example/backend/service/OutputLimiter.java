@@ -0,0 +1,59 @@
+package org.example.backend.service;
+
+/**
+ *  给输出加上限：最多转发 maxChars 个字符，超出的部分丢弃，并补一行截断提示
+ *  下游（OutputCollector / SSE 队列）因此最多只会收到固定大小的输出
+ *  顺便留意输出里有没有内存不足的报错，用来判断 MEMORY_LIMIT
+ */
+class OutputLimiter implements OutputListener {
+
+    private final OutputListener delegate;
+    private final int maxChars;
+
+    private int written;
+    private boolean truncated;
+    private boolean memoryError;
+
+    OutputLimiter(OutputListener delegate, int maxChars) {
+        this.delegate = delegate;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public void onOutput(String chunk) {
+        if (truncated) {
+            return;
+        }
+        // java.lang.OutOfMemoryError / python 的 MemoryError
+        if (chunk.contains("MemoryError")) {
+            memoryError = true;
+        }
+        int remaining = maxChars - written;
+        if (chunk.length() <= remaining) {
+            written += chunk.length();
+            delegate.onOutput(chunk);
+            return;
+        }
+        truncated = true;
+        written = maxChars;
+        if (remaining > 0) {
+            delegate.onOutput(chunk.substring(0, remaining));
+        }
+        delegate.onOutput("\n[output truncated: exceeded " + maxChars + " characters]\n");
+    }
+
+    /**
+     *  给系统提示（超时、退出码等）用，不计入上限
+     */
+    void appendNotice(String notice) {
+        delegate.onOutput(notice);
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    boolean isMemoryError() {
+        return memoryError;
+    }
+}
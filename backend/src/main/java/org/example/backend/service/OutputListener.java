@@ -0,0 +1,11 @@
+package org.example.backend.service;
+
+/**
+ *  沙箱输出的回调
+ *  容器的 stdout/stderr 每读到一块就回调一次，不用等程序结束；
+ *  同步接口用 OutputCollector 把它们拼起来，流式接口直接转发给客户端
+ */
+public interface OutputListener {
+
+    void onOutput(String chunk);
+}
@@ -0,0 +1,331 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.runtime.ContainerSpec;
+import org.example.backend.runtime.SandboxProcess;
+import org.example.backend.runtime.SandboxRuntime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  预热的沙箱容器池
+ *  每种语言提前启动一批常驻容器（相当于 docker run -d，里面只跑 sleep infinity 或者预热运行时的 zygote），
+ *  用户代码通过 exec 在这些容器里执行，跑完后重置 /workspace 再放回池里。
+ *  这样请求的热路径上就不用再付容器创建、启动和销毁的开销。
+ *
+ *  - 每种语言有 min/max 大小：后台线程保证至少有 min 个空闲容器，总数不超过 max
+ *  - 一个容器跑满 maxRunsPerContainer 次、或者被标记为"被污染"（执行异常、重置失败）就销毁重建
+ *  - 空闲容器定期 inspect 做健康检查，挂掉的直接剔除
+ */
+@Component
+public class SandboxContainerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SandboxContainerPool.class);
+
+    // 池容器统一打上这个 label，启动时顺便清理上次进程没删干净的容器
+    private static final String POOL_LABEL = "online-compiler.sandbox-pool";
+
+    // 重置容器：杀掉用户代码残留的后台进程（PID 1 的 sleep / zygote 不受影响），清空工作目录和 /tmp
+    private static final String RESET_COMMAND =
+            "kill -9 -1 2>/dev/null; rm -rf /workspace/* /workspace/.[!.]* /tmp/* /tmp/.[!.]* 2>/dev/null; true";
+
+    @Autowired
+    private SandboxProperties properties;
+
+    @Autowired
+    private SandboxRuntime runtime;
+
+    @Autowired
+    private WarmRuntime warmRuntime;
+
+    private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+
+    // 定时任务：补充容器、健康检查
+    private ScheduledExecutorService scheduler;
+    // 慢操作（启动 / 重置 / 销毁容器）都丢到这里，不占用请求线程
+    private ExecutorService maintenanceExecutor;
+    // 遗留容器清理完之前不补充，免得新建的容器被一起删掉
+    private volatile boolean orphansRemoved;
+
+    /**
+     *  从池里借出来的一个容器
+     */
+    public static class PooledContainer {
+        private final String language;
+        private final String name;
+        private int runs;
+
+        PooledContainer(String language, String name) {
+            this.language = language;
+            this.name = name;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+    }
+
+    /**
+     *  单个语言的池
+     */
+    private static class LanguagePool {
+        final String language;
+        final LinkedBlockingDeque<PooledContainer> idle = new LinkedBlockingDeque<>();
+        // 已创建（含正在启动中）的容器总数
+        final AtomicInteger total = new AtomicInteger();
+        // 正在等待空闲容器的请求数，补充时会考虑进去
+        final AtomicInteger waiting = new AtomicInteger();
+
+        LanguagePool(String language) {
+            this.language = language;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.getPool().isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("sandbox-pool-scheduler"));
+        maintenanceExecutor = Executors.newCachedThreadPool(daemonThreads("sandbox-pool-worker"));
+
+        for (String language : properties.getLanguages().keySet()) {
+            pools.put(language, new LanguagePool(language));
+        }
+
+        SandboxProperties.Pool config = properties.getPool();
+        // 单线程调度器按提交顺序执行：先清理遗留容器，再开始补充
+        scheduler.execute(this::removeOrphans);
+        scheduler.scheduleWithFixedDelay(this::refillAll,
+                0, config.getRefillIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::healthCheckAll,
+                config.getHealthCheckIntervalMs(), config.getHealthCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        maintenanceExecutor.shutdownNow();
+        for (LanguagePool pool : pools.values()) {
+            PooledContainer container;
+            while ((container = pool.idle.poll()) != null) {
+                removeContainer(container.getName());
+            }
+        }
+    }
+
+    /**
+     *  借一个空闲容器
+     *  池没启用、该语言没有池、或者等了 acquireTimeoutMs 还没有空闲容器，就返回 null，调用方退回冷启动
+     */
+    public PooledContainer acquire(String language) throws InterruptedException {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            return null;
+        }
+        PooledContainer container = pool.idle.pollFirst();
+        if (container != null) {
+            return container;
+        }
+        // 没有空闲的：登记等待，立刻触发一次补充，然后等一会
+        pool.waiting.incrementAndGet();
+        try {
+            maintenanceExecutor.submit(() -> refill(pool));
+            return pool.idle.pollFirst(properties.getPool().getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+        } finally {
+            pool.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     *  归还容器
+     *  contaminated=true 表示这次执行出了异常，容器状态不可信，直接销毁
+     *  否则在后台重置后放回池里（跑满次数的也直接销毁）
+     */
+    public void release(PooledContainer container, boolean contaminated) {
+        LanguagePool pool = pools.get(container.getLanguage());
+        if (pool == null) {
+            removeContainer(container.getName());
+            return;
+        }
+        container.runs++;
+        if (contaminated || container.runs >= properties.getPool().getMaxRunsPerContainer()) {
+            maintenanceExecutor.submit(() -> destroy(pool, container));
+            return;
+        }
+        maintenanceExecutor.submit(() -> {
+            if (resetContainer(container)) {
+                pool.idle.offerLast(container);
+            } else {
+                destroy(pool, container);
+            }
+        });
+    }
+
+    private void refillAll() {
+        for (LanguagePool pool : pools.values()) {
+            refill(pool);
+        }
+    }
+
+    /**
+     *  补充容器：目标是 max(minSize, 正在等待的请求数) 个空闲容器，总数不超过 maxSize
+     */
+    private void refill(LanguagePool pool) {
+        if (!orphansRemoved) {
+            return;
+        }
+        SandboxProperties.Language config = properties.language(pool.language);
+        while (true) {
+            int target = Math.max(config.getPoolMinSize(), pool.waiting.get());
+            if (pool.idle.size() >= target) {
+                return;
+            }
+            int current = pool.total.get();
+            if (current >= config.getPoolMaxSize()) {
+                return;
+            }
+            if (!pool.total.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            PooledContainer container = startContainer(pool.language);
+            if (container == null) {
+                pool.total.decrementAndGet();
+                return;
+            }
+            pool.idle.offerLast(container);
+        }
+    }
+
+    private void healthCheckAll() {
+        for (LanguagePool pool : pools.values()) {
+            // 只检查当前空闲的，检查期间先取出来，避免被借走
+            int size = pool.idle.size();
+            for (int i = 0; i < size; i++) {
+                PooledContainer container = pool.idle.pollFirst();
+                if (container == null) {
+                    break;
+                }
+                if (isRunning(container.getName())) {
+                    pool.idle.offerLast(container);
+                } else {
+                    log.warn("sandbox container {} failed health check, recycling", container.getName());
+                    destroy(pool, container);
+                }
+            }
+        }
+    }
+
+    /**
+     *  启动一个常驻容器，主进程是 sleep infinity（或者预热运行时的 zygote，见 WarmRuntime），实际代码都通过 exec 跑
+     *  资源限制（CPU / 内存 / pids）在创建容器时就设好，之后每次 exec 都受它约束；/workspace 挂在 tmpfs 上
+     */
+    private PooledContainer startContainer(String language) {
+        String name = "sandbox_pool_" + language + "_" + UUID.randomUUID().toString().replaceAll("-", "");
+        SandboxProperties.Language limits = properties.language(language);
+        ContainerSpec spec = Workspace.mountTmpfs(new ContainerSpec()
+                .setName(name)
+                .setImage(properties.getImage())
+                .setCommand(warmRuntime.containerCommand(language))
+                .addLabel(POOL_LABEL, language)
+                .setLimits(limits.getCpus(), limits.getMemoryMb(), limits.getPidsLimit()),
+                properties.getWorkspace().getTmpfsSizeMb());
+        try {
+            runtime.start(spec);
+            return new PooledContainer(language, name);
+        } catch (Exception e) {
+            log.warn("failed to start sandbox container for {}: {}", language, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean resetContainer(PooledContainer container) {
+        try (SandboxProcess process = runtime.exec(container.getName(),
+                Arrays.asList("/bin/bash", "-c", RESET_COMMAND), "/")) {
+            // 把输出读完，等命令结束
+            InputStream output = process.getOutput();
+            byte[] buffer = new byte[1024];
+            while (output.read(buffer) != -1) {
+                // ignore
+            }
+            return process.waitFor() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isRunning(String name) {
+        try {
+            return runtime.isRunning(name);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void destroy(LanguagePool pool, PooledContainer container) {
+        removeContainer(container.getName());
+        pool.total.decrementAndGet();
+        refill(pool);
+    }
+
+    private void removeContainer(String name) {
+        try {
+            runtime.remove(name);
+        } catch (Exception ignore) {}
+    }
+
+    /**
+     *  清理上一次进程遗留下来的池容器（比如后端被 kill -9，@PreDestroy 没来得及执行）
+     */
+    private void removeOrphans() {
+        try {
+            for (String id : runtime.listByLabel(POOL_LABEL)) {
+                removeContainer(id);
+            }
+        } catch (Exception e) {
+            log.warn("failed to list orphan sandbox containers: {}", e.getMessage());
+        } finally {
+            orphansRemoved = true;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  沙箱镜像里的预热运行时（见 sandbox-image/zygote），按语言用 sandbox.languages.<language>.warm-runtime 选择：
+ *  - none：冷启动，python3 script.py / java -cp classes Main
+ *  - zygote（python）：池容器的主进程换成 Python fork-server，常用标准库已经 import 好，
+ *    每次运行从它 fork 一个干净的子进程，省掉解释器启动和 import 的时间
+ *  - cds（java）：java 带上镜像里生成的 CDS 归档，常用的 JDK 类直接从归档映射，不用再解析加载
+ *  - resident（java）：池容器的主进程换成常驻 JVM，每次运行用一个新的 ClassLoader 加载用户的类（同时也带 CDS）；
+ *    同一个容器里一次只能跑一个程序
+ *
+ *  运行命令都会先看 zygote 在不在，不在（一次性的冷启动容器、旧镜像、zygote 挂了）就退回冷启动命令，
+ *  所以不管拿到的是池容器还是冷启动容器，用的都是同一条命令
+ */
+@Component
+public class WarmRuntime {
+
+    public static final String NONE = "none";
+    public static final String ZYGOTE = "zygote";
+    public static final String CDS = "cds";
+    public static final String RESIDENT = "resident";
+
+    private static final String ZYGOTE_DIR = "/opt/zygote";
+    // C 写的客户端，自己几乎没有启动开销
+    private static final String ZYRUN = ZYGOTE_DIR + "/zyrun";
+    private static final String PYTHON_SOCKET = "/run/zygote/python.sock";
+    private static final String JAVA_SOCKET = "/run/zygote/java.sock";
+    // 归档不存在时 JVM 会直接忽略这个参数
+    private static final String CDS_OPTION = "-XX:SharedArchiveFile=" + ZYGOTE_DIR + "/jdk.jsa";
+
+    @Autowired
+    private SandboxProperties properties;
+
+    /**
+     *  池容器的主进程：zygote 或者 sleep infinity（镜像里没有 zygote 时也是 sleep infinity）
+     */
+    public List<String> containerCommand(String language) {
+        String mode = mode(language);
+        if ("python".equals(language) && ZYGOTE.equals(mode)) {
+            return Arrays.asList("/bin/sh", "-c", "[ -f " + ZYGOTE_DIR + "/pyzygote.py ] && exec python3 "
+                    + ZYGOTE_DIR + "/pyzygote.py " + PYTHON_SOCKET + "; exec sleep infinity");
+        }
+        if ("java".equals(language) && RESIDENT.equals(mode)) {
+            return Arrays.asList("/bin/sh", "-c", "[ -f " + ZYGOTE_DIR + "/JavaZygote.class ] && exec java "
+                    + CDS_OPTION + " -Djava.security.manager=allow -cp " + ZYGOTE_DIR + " JavaZygote "
+                    + JAVA_SOCKET + "; exec sleep infinity");
+        }
+        return Arrays.asList("sleep", "infinity");
+    }
+
+    /**
+     *  在 /workspace 下运行 script.py 的命令
+     */
+    public String pythonCommand() {
+        if (ZYGOTE.equals(mode("python"))) {
+            return "if [ -S " + PYTHON_SOCKET + " ] && [ -x " + ZYRUN + " ]; then exec " + ZYRUN + " python "
+                    + PYTHON_SOCKET + " script.py; else exec python3 script.py; fi";
+        }
+        return "python3 script.py";
+    }
+
+    /**
+     *  在 /workspace 下运行 Main 的命令，classpath 相对 /workspace
+     */
+    public String javaCommand(String classpath) {
+        String mode = mode("java");
+        if (RESIDENT.equals(mode)) {
+            return "if [ -S " + JAVA_SOCKET + " ] && [ -x " + ZYRUN + " ]; then exec " + ZYRUN + " java "
+                    + JAVA_SOCKET + " " + classpath + " Main; else exec java " + CDS_OPTION + " -cp " + classpath
+                    + " Main; fi";
+        }
+        if (CDS.equals(mode)) {
+            return "java " + CDS_OPTION + " -cp " + classpath + " Main";
+        }
+        return "java -cp " + classpath + " Main";
+    }
+
+    /**
+     *  同一个容器里能不能同时跑多个程序（批量执行时决定并发度），常驻 JVM 一次只能跑一个
+     */
+    public boolean supportsParallelRuns(String language) {
+        return !("java".equals(language) && RESIDENT.equals(mode(language)));
+    }
+
+    private String mode(String language) {
+        String mode = properties.language(language).getWarmRuntime();
+        return mode == null ? NONE : mode.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.backend.service;
+
+import org.example.backend.runtime.ContainerSpec;
+import org.example.backend.runtime.TarArchive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ *  一次执行的工作目录（容器里的 /workspace），在内存里拼好：源码 / .class / stdin.txt / 批量用例的输入等
+ *  - stream 模式：打成 tar 从 stdin 送进容器，在容器里解到 tmpfs 上，后端不落盘，也没有要清理的临时目录
+ *  - bind 模式（老办法）：写到 sandbox.temp-root 下的临时目录，冷启动时挂载进容器
+ */
+public class Workspace {
+
+    // 容器里的工作目录
+    public static final String DIR = "/workspace";
+
+    // 相对 /workspace 的路径 -> 内容
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+    /**
+     *  给容器的 /workspace 挂一个 tmpfs（sizeMb <= 0 时不挂）
+     *  和 docker --tmpfs 的默认值一样不允许直接执行里面的文件，程序都是通过 python3 / java / bash 跑的
+     */
+    public static ContainerSpec mountTmpfs(ContainerSpec spec, int sizeMb) {
+        if (sizeMb > 0) {
+            spec.addTmpfs(DIR, "rw,nosuid,nodev,noexec,size=" + sizeMb + "m");
+        }
+        return spec;
+    }
+
+    public Workspace put(String path, byte[] content) {
+        files.put(path, content);
+        return this;
+    }
+
+    public Workspace put(String path, String content) {
+        return put(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     *  把 dir 下的文件（相对路径 -> 内容）放到 workspace 的 dir 目录下
+     */
+    public Workspace putAll(String dir, Map<String, byte[]> dirFiles) {
+        for (Map.Entry<String, byte[]> entry : dirFiles.entrySet()) {
+            put(dir + "/" + entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    public Map<String, byte[]> getFiles() {
+        return files;
+    }
+
+    /**
+     *  打成 tar，父目录条目排在文件前面
+     */
+    public byte[] toTar() {
+        Set<String> dirs = new TreeSet<>();
+        for (String path : files.keySet()) {
+            int slash = path.indexOf('/');
+            while (slash > 0) {
+                dirs.add(path.substring(0, slash));
+                slash = path.indexOf('/', slash + 1);
+            }
+        }
+        TarArchive tar = new TarArchive();
+        for (String dir : dirs) {
+            tar.addDirectory(dir);
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            tar.addFile(file.getKey(), file.getValue());
+        }
+        return tar.toByteArray();
+    }
+
+    public void writeTo(Path dir) throws IOException {
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            Path target = dir.resolve(file.getKey());
+            Files.createDirectories(target.getParent());
+            Files.write(target, file.getValue());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.example.backend.runtime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  用一个假的 Docker Engine（unix socket 上的小 HTTP 服务）测试 EngineApiSandboxRuntime，不需要真的 docker daemon
+ */
+class EngineApiSandboxRuntimeTest {
+
+    private Path tempDir;
+    private FakeEngine engine;
+    private EngineApiSandboxRuntime runtime;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("fake_engine_");
+        engine = new FakeEngine(tempDir.resolve("docker.sock"));
+        runtime = new EngineApiSandboxRuntime(new UnixSocketHttpClient(engine.socketPath, 4), "v1.41");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        runtime.close();
+        engine.close();
+        Files.deleteIfExists(tempDir.resolve("docker.sock"));
+        Files.deleteIfExists(tempDir);
+    }
+
+    @Test
+    void runDemuxesOutputAndReusesConnections() throws Exception {
+        ContainerSpec spec = new ContainerSpec()
+                .setName("sandbox_test")
+                .setImage("my-runner-image:latest")
+                .setCommand(Arrays.asList("python3", "script.py"))
+                .setLimits(1.0, 256, 64);
+
+        String output;
+        int exitCode;
+        try (SandboxProcess process = runtime.run(spec)) {
+            output = readAll(process.getOutput());
+            exitCode = process.waitFor();
+        }
+
+        assertEquals("hello\noops\n" + repeat('x', 20000), output);
+        assertEquals(3, exitCode);
+        assertEquals(Arrays.asList(
+                "POST /v1.41/containers/create?name=sandbox_test",
+                "POST /v1.41/containers/c1/attach?stream=1&stdout=1&stderr=1",
+                "POST /v1.41/containers/c1/start",
+                "POST /v1.41/containers/c1/wait",
+                "DELETE /v1.41/containers/c1?force=1"), engine.requests);
+        assertTrue(engine.createBody.contains("\"NanoCpus\":1000000000"));
+        assertTrue(engine.createBody.contains("\"Memory\":268435456"));
+        assertTrue(engine.createBody.contains("\"PidsLimit\":64"));
+        // create / start / wait / delete 复用同一条 keep-alive 连接，attach 单独一条
+        assertEquals(2, engine.connections.get());
+    }
+
+    @Test
+    void execReturnsOutputAndExitCode() throws Exception {
+        String output;
+        int exitCode;
+        try (SandboxProcess process = runtime.exec("c1", Arrays.asList("/bin/bash", "-c", "echo hi"), "/workspace")) {
+            output = readAll(process.getOutput());
+            exitCode = process.waitFor();
+        }
+
+        assertEquals("hi\n", output);
+        assertEquals(0, exitCode);
+        assertEquals(Arrays.asList(
+                "POST /v1.41/containers/c1/exec",
+                "POST /v1.41/exec/e1/start",
+                "GET /v1.41/exec/e1/json"), engine.requests);
+    }
+
+    @Test
+    void execWritesStdinThenClosesIt() throws Exception {
+        byte[] tar = new TarArchive().addFile("script.py", "print(1)\n".getBytes(StandardCharsets.UTF_8)).toByteArray();
+        String output;
+        try (SandboxProcess process = runtime.exec("c2", Arrays.asList("tar", "-xf", "-"), "/workspace", tar)) {
+            output = readAll(process.getOutput());
+            assertEquals(0, process.waitFor());
+        }
+
+        // 假 engine 把读到的 stdin（直到写方向被关闭）原样作为输出返回
+        assertEquals(new String(tar, StandardCharsets.UTF_8), output);
+        assertTrue(engine.execBody.contains("\"AttachStdin\":true"));
+    }
+
+    @Test
+    void errorResponsesBecomeIOExceptions() {
+        ContainerSpec spec = new ContainerSpec().setImage("missing-image").setCommand(Arrays.asList("true"));
+        IOException e = assertThrows(IOException.class, () -> runtime.start(spec));
+        assertTrue(e.getMessage().contains("No such image"));
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     *  极简的假 Docker Engine：按请求路径返回固定的响应
+     */
+    private static class FakeEngine {
+        final Path socketPath;
+        final ServerSocketChannel server;
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        final AtomicInteger connections = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile String createBody = "";
+        volatile String execBody = "";
+
+        FakeEngine(Path socketPath) throws IOException {
+            this.socketPath = socketPath;
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Thread acceptor = new Thread(() -> {
+                while (server.isOpen()) {
+                    try {
+                        SocketChannel channel = server.accept();
+                        connections.incrementAndGet();
+                        Thread handler = new Thread(() -> handle(channel));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void close() throws IOException {
+            server.close();
+        }
+
+        private void handle(SocketChannel channel) {
+            try (SocketChannel ch = channel) {
+                InputStream in = Channels.newInputStream(ch);
+                OutputStream out = Channels.newOutputStream(ch);
+                String requestLine;
+                while ((requestLine = readLine(in)) != null) {
+                    int contentLength = 0;
+                    String header;
+                    while (!(header = readLine(in)).isEmpty()) {
+                        if (header.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(header.substring(15).trim());
+                        }
+                    }
+                    byte[] body = new byte[contentLength];
+                    int read = 0;
+                    while (read < contentLength) {
+                        read += in.read(body, read, contentLength - read);
+                    }
+                    String[] parts = requestLine.split(" ");
+                    String request = parts[0] + " " + parts[1];
+                    requests.add(request);
+                    if (!respond(request, new String(body, StandardCharsets.UTF_8), in, out)) {
+                        return;
+                    }
+                }
+            } catch (Exception ignore) {}
+        }
+
+        /**
+         *  返回 false 表示连接被劫持，处理完就关闭
+         */
+        private boolean respond(String request, String body, InputStream in, OutputStream out) throws Exception {
+            if (request.startsWith("POST /v1.41/containers/create")) {
+                if (body.contains("missing-image")) {
+                    send(out, 404, "{\"message\":\"No such image: missing-image\"}");
+                    return true;
+                }
+                createBody = body;
+                send(out, 201, "{\"Id\":\"c1\",\"Warnings\":[]}");
+            } else if (request.startsWith("POST /v1.41/containers/c1/attach")) {
+                out.write("HTTP/1.1 101 UPGRADED\r\nConnection: Upgrade\r\nUpgrade: tcp\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                started.await(5, TimeUnit.SECONDS);
+                frame(out, 1, "hello\n");
+                frame(out, 2, "oops\n");
+                frame(out, 1, repeat('x', 20000));
+                return false;
+            } else if (request.equals("POST /v1.41/containers/c1/start")) {
+                send(out, 204, null);
+                started.countDown();
+            } else if (request.equals("POST /v1.41/containers/c1/wait")) {
+                sendChunked(out, "{\"StatusCode\":3}");
+            } else if (request.startsWith("DELETE /v1.41/containers/c1")) {
+                send(out, 204, null);
+            } else if (request.equals("POST /v1.41/containers/c1/exec")) {
+                send(out, 201, "{\"Id\":\"e1\"}");
+            } else if (request.equals("POST /v1.41/exec/e1/start")) {
+                out.write("HTTP/1.1 101 UPGRADED\r\nConnection: Upgrade\r\nUpgrade: tcp\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                frame(out, 1, "hi\n");
+                return false;
+            } else if (request.equals("POST /v1.41/containers/c2/exec")) {
+                execBody = body;
+                send(out, 201, "{\"Id\":\"e2\"}");
+            } else if (request.equals("POST /v1.41/exec/e2/start")) {
+                out.write("HTTP/1.1 101 UPGRADED\r\nConnection: Upgrade\r\nUpgrade: tcp\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                frame(out, 1, new String(readToEof(in), StandardCharsets.UTF_8));
+                return false;
+            } else if (request.equals("GET /v1.41/exec/e1/json") || request.equals("GET /v1.41/exec/e2/json")) {
+                send(out, 200, "{\"Running\":false,\"ExitCode\":0}");
+            } else {
+                send(out, 404, "{\"message\":\"not found\"}");
+            }
+            return true;
+        }
+
+        private static void send(OutputStream out, int status, String body) throws IOException {
+            byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            String head = "HTTP/1.1 " + status + " X\r\nContent-Type: application/json\r\n"
+                    + (status == 204 ? "" : "Content-Length: " + bytes.length + "\r\n") + "\r\n";
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.flush();
+        }
+
+        private static void sendChunked(OutputStream out, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            out.write(("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + Integer.toHexString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        private static void frame(OutputStream out, int stream, String payload) throws IOException {
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            int size = bytes.length;
+            out.write(new byte[]{(byte) stream, 0, 0, 0,
+                    (byte) (size >>> 24), (byte) (size >>> 16), (byte) (size >>> 8), (byte) size});
+            out.write(bytes);
+            out.flush();
+        }
+
+        private static byte[] readToEof(InputStream in) throws IOException {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                data.write(buffer, 0, n);
+            }
+            return data.toByteArray();
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    String s = line.toString(StandardCharsets.US_ASCII.name());
+                    return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+                }
+                line.write(b);
+            }
+            return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII.name());
+        }
+    }
+}
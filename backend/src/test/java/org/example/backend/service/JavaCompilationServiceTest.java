@@ -0,0 +1,64 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.example.backend.model.CompileDiagnostic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaCompilationServiceTest {
+
+    private JavaCompilationService service;
+
+    @BeforeEach
+    void setUp() {
+        SandboxProperties properties = new SandboxProperties();
+        properties.getJavaCompiler().setMaxConcurrent(2);
+        properties.getJavaCompiler().setWarmupIterations(0);
+        service = new JavaCompilationService();
+        ReflectionTestUtils.setField(service, "properties", properties);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void compilesToClassBytesInMemory() throws Exception {
+        CompilationResult result = service.compile("public class Main {\n"
+                + "    static class Inner {}\n"
+                + "    public static void main(String[] args) { System.out.println(new Inner()); }\n"
+                + "}\n");
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getClasses().containsKey("Main"));
+        assertTrue(result.getClasses().containsKey("Main$Inner"));
+        assertTrue(result.getDiagnostics().isEmpty());
+    }
+
+    @Test
+    void reportsStructuredDiagnostics() throws Exception {
+        CompilationResult result = service.compile("public class Main {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        int x = \"oops\";\n"
+                + "    }\n"
+                + "}\n");
+
+        assertFalse(result.isSuccess());
+        assertTrue(result.getClasses().isEmpty());
+        assertEquals(1, result.getDiagnostics().size());
+        CompileDiagnostic diagnostic = result.getDiagnostics().get(0);
+        assertEquals("ERROR", diagnostic.getKind());
+        assertEquals("Main.java", diagnostic.getSource());
+        assertEquals(3, diagnostic.getLine());
+        assertTrue(result.getOutput().startsWith("Main.java:3: error: incompatible types"));
+        assertTrue(result.getOutput().endsWith("1 error"));
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.backend.service;
+
+import org.example.backend.config.SandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaCompileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SandboxProperties properties;
+    private JavaCompileCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new SandboxProperties();
+        properties.getCompileCache().setDir(tempDir.resolve("cache").toString());
+        // 1 MB 上限，下面每个条目 400 KB
+        properties.getCompileCache().setMaxSizeMb(1);
+        cache = new JavaCompileCache();
+        ReflectionTestUtils.setField(cache, "properties", properties);
+        cache.init();
+    }
+
+    @Test
+    void keyDependsOnSourceCompilerAndOptions() {
+        String key = cache.key("class Main {}", "my-runner-image");
+        assertEquals(key, cache.key("class Main {}", "my-runner-image"));
+        assertNotEquals(key, cache.key("class Main { }", "my-runner-image"));
+
+        properties.getCompileCache().setJavacOptions("-g:none");
+        assertNotEquals(key, cache.key("class Main {}", "my-runner-image"));
+        properties.getCompileCache().setJavacOptions("");
+        assertNotEquals(key, cache.key("class Main {}", "my-runner-image:jdk21"));
+    }
+
+    @Test
+    void storesClassesAndCompileErrors() throws Exception {
+        Path classes = classesOfSize("a", 10);
+        cache.putClasses("a", classes);
+        cache.putCompileError("b", "Main.java:1: error: ';' expected", 1);
+
+        Path dest = tempDir.resolve("dest");
+        JavaCompileCache.Hit classesHit = cache.lookup("a", dest);
+        assertEquals(false, classesHit.isCompileError());
+        assertArrayEquals(Files.readAllBytes(classes.resolve("Main.class")), Files.readAllBytes(dest.resolve("Main.class")));
+
+        JavaCompileCache.Hit errorHit = cache.lookup("b", tempDir.resolve("unused"));
+        assertTrue(errorHit.isCompileError());
+        assertEquals("Main.java:1: error: ';' expected", errorHit.getCompileOutput());
+        assertEquals(1, errorHit.getExitCode());
+
+        assertNull(cache.lookup("c", tempDir.resolve("unused")));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverSize() throws Exception {
+        cache.putClasses("a", classesOfSize("a", 400 * 1024));
+        cache.putClasses("b", classesOfSize("b", 400 * 1024));
+        // 访问一次 a，b 变成最久没用的
+        cache.lookup("a", tempDir.resolve("dest"));
+        cache.putClasses("c", classesOfSize("c", 400 * 1024));
+
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.lookup("b", tempDir.resolve("dest-b")));
+        assertTrue(cache.getSizeBytes() <= 1024 * 1024);
+    }
+
+    private Path classesOfSize(String name, int size) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve("classes-" + name));
+        Files.write(dir.resolve("Main.class"), new byte[size]);
+        return dir;
+    }
+}
@@ -1,7 +1,7 @@
 import React, { useState } from 'react';
 import CodeEditor from './components/CodeEditor.jsx';
 import OutputDisplay from './components/OutputDisplay.jsx';
-import { runCode } from './services/api.js';
+import { runCodeStream } from './services/api.js';
 
 const App = () => {
   // 默认语言选择 Python
@@ -11,9 +11,11 @@ const App = () => {
   const [output, setOutput] = useState('');
 
   const handleRun = async () => {
-    // 调用 runCode 时，传递 {code, language}
-    const result = await runCode({ code, language });
-    setOutput(result);
+    // 流式运行：输出一边到达一边追加显示
+    setOutput('');
+    await runCodeStream({ code, language }, (chunk) => {
+      setOutput((prev) => prev + chunk);
+    });
   };
 
   const handleLanguageChange = (e) => {
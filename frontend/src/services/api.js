@@ -1,9 +1,67 @@
-export const runCode = async ({ code, language }) => {
-  const response = await fetch('/api/run', {
-    method: 'POST',
-    headers: { 'Content-Type': 'application/json' },
-    body: JSON.stringify({ code, language })
-  });
-  const data = await response.json();
-  return data.output;
-};
+export const runCode = async ({ code, language }) => {
+  const response = await fetch('/api/run', {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json' },
+    body: JSON.stringify({ code, language })
+  });
+  const data = await response.json();
+  return data.output;
+};
+
+// 流式运行：后端通过 SSE 一边执行一边推送输出
+// onOutput(chunk) 每收到一块输出调用一次，结束时返回 exit 事件里的 { jobId, status, exitCode }
+// EventSource 只支持 GET，这里用 fetch + ReadableStream 自己解析 SSE
+export const runCodeStream = async ({ code, language }, onOutput) => {
+  const response = await fetch('/api/run/stream', {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json', Accept: 'text/event-stream' },
+    body: JSON.stringify({ code, language })
+  });
+  // 被限流（429）等情况，后端返回的是普通 JSON
+  if (!response.ok || !response.body) {
+    const data = await response.json().catch(() => ({}));
+    onOutput(data.output || `Error: HTTP ${response.status}`);
+    return null;
+  }
+
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder('utf-8');
+  let buffer = '';
+  let exit = null;
+
+  // 处理一个完整的 SSE 事件（以空行结束）
+  const handleEvent = (rawEvent) => {
+    let event = 'message';
+    const dataLines = [];
+    rawEvent.split('\n').forEach((line) => {
+      if (line.startsWith('event:')) {
+        event = line.slice(6).trim();
+      } else if (line.startsWith('data:')) {
+        dataLines.push(line.slice(5));
+      }
+    });
+    if (dataLines.length === 0) {
+      return;
+    }
+    const data = JSON.parse(dataLines.join('\n'));
+    if (event === 'output') {
+      onOutput(data.chunk);
+    } else if (event === 'exit') {
+      exit = data;
+    }
+  };
+
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) {
+      break;
+    }
+    buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+    let boundary;
+    while ((boundary = buffer.indexOf('\n\n')) !== -1) {
+      handleEvent(buffer.slice(0, boundary));
+      buffer = buffer.slice(boundary + 2);
+    }
+  }
+  return exit;
+};
@@ -0,0 +1,69 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ *  构建镜像时跑一遍，记录下典型提交会用到的 JDK 类，用来生成 CDS 归档（/opt/zygote/jdk.jsa）
+ *  覆盖的是 OJ 题目里常见的写法：Scanner / BufferedReader 读输入、集合、stream、lambda、字符串格式化、大数
+ */
+public class CdsWarmup {
+
+    public static void main(String[] args) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        String line = reader.readLine();
+        Scanner scanner = new Scanner(line == null ? "1 2" : line);
+        int a = scanner.nextInt();
+        int b = scanner.nextInt();
+        StringTokenizer tokenizer = new StringTokenizer("3 4 5");
+        while (tokenizer.hasMoreTokens()) {
+            a += Integer.parseInt(tokenizer.nextToken());
+        }
+
+        List<Integer> list = new ArrayList<>(Arrays.asList(5, 3, 1, 4, 2));
+        Collections.sort(list);
+        list.sort(Comparator.reverseOrder());
+        Map<String, Integer> map = new HashMap<>();
+        TreeMap<Integer, String> tree = new TreeMap<>();
+        Deque<Integer> deque = new ArrayDeque<>();
+        PriorityQueue<int[]> heap = new PriorityQueue<>((x, y) -> Integer.compare(x[0], y[0]));
+        Set<Long> set = new HashSet<>();
+        LinkedList<String> linked = new LinkedList<>();
+        for (int i = 0; i < 100; i++) {
+            map.merge("k" + (i % 7), i, Integer::sum);
+            tree.put(i, String.valueOf(i));
+            deque.push(i);
+            heap.offer(new int[]{i % 13, i});
+            set.add((long) i * i);
+            linked.add(Integer.toString(i, 2));
+        }
+        Function<Integer, Integer> square = x -> x * x;
+        String joined = IntStream.rangeClosed(1, 10).boxed().map(square).map(String::valueOf)
+                .collect(Collectors.joining(","));
+        Map<Boolean, List<Integer>> parts = list.stream().collect(Collectors.partitioningBy(x -> x % 2 == 0));
+        int[] array = IntStream.range(0, 50).map(i -> 50 - i).toArray();
+        Arrays.sort(array);
+        long[][] grid = new long[10][10];
+        Arrays.fill(grid[0], 1L);
+
+        Matcher matcher = Pattern.compile("(\\d+)-(\\w+)").matcher("12-ab 34-cd");
+        while (matcher.find()) {
+            b += matcher.group(1).length();
+        }
+        BigInteger big = BigInteger.valueOf(2).pow(100).mod(BigInteger.valueOf(1_000_000_007));
+        BigDecimal decimal = new BigDecimal("1.10").add(BigDecimal.ONE);
+
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d %d %.3f%n", a, b, Math.sqrt(a)));
+        out.append(joined).append(' ').append(parts).append(' ').append(big).append(' ').append(decimal);
+        out.append(' ').append(String.join("|", linked.subList(0, 3))).append(' ').append(Optional.of(map).isPresent());
+        System.out.println(out);
+        System.out.printf("%s %s%n", heap.poll()[1], Objects.hash(set.size(), tree.firstKey(), deque.peek()));
+    }
+}
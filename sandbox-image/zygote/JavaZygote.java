@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ *  常驻 JVM：在池容器里作为主进程（PID 1），通过 unix socket 接收运行请求（客户端见 zyclient.py）
+ *  每次运行把用户的类放进一个新的 URLClassLoader，在单独的线程组里调用 Main.main，跑完整个 loader 丢掉，
+ *  JDK 的类和 JIT 编译结果在运行之间复用，省掉 JVM 启动和类加载的时间
+ *
+ *  System.in/out/err 是全局的，所以同一时间只跑一个请求。每次运行后恢复系统属性、默认 Locale / 时区；
+ *  状态没法恢复干净时（还有残留线程、OOM、客户端中途断开）回完这个请求就退出，容器随之被回收重建
+ *  System.exit 用 SecurityManager 拦下来，需要 -Djava.security.manager=allow
+ *
+ *  用法：java -Djava.security.manager=allow -cp /opt/zygote JavaZygote [socket 路径]
+ */
+public class JavaZygote {
+
+    private static final String DEFAULT_SOCKET = "/run/zygote/java.sock";
+
+    private static final ExitTrap EXIT_TRAP = new ExitTrap();
+
+    public static void main(String[] args) throws Exception {
+        Path path = Paths.get(args.length > 0 ? args[0] : DEFAULT_SOCKET);
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(path));
+        System.setSecurityManager(EXIT_TRAP);
+
+        Properties properties = (Properties) System.getProperties().clone();
+        Locale locale = Locale.getDefault();
+        TimeZone timeZone = TimeZone.getDefault();
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        while (true) {
+            boolean clean;
+            try (SocketChannel channel = server.accept()) {
+                clean = new Run(channel).serve();
+            } catch (Exception e) {
+                clean = false;
+            } finally {
+                System.setIn(in);
+                System.setOut(out);
+                System.setErr(err);
+                System.setProperties((Properties) properties.clone());
+                Locale.setDefault(locale);
+                TimeZone.setDefault(timeZone);
+            }
+            if (!clean) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    /**
+     *  一次运行
+     *  客户端先发一行 "RUN <cwd>\t<classpath>\t<main class>"，之后是 stdin 帧（I = 数据，E = stdin 结束）
+     *  服务端回 O / R 帧（stdout / stderr），最后一个 X 帧 "退出码 秒数"
+     *  帧格式：1 字节类型 + 4 字节长度 + 数据
+     */
+    private static class Run {
+        private final DataInputStream input;
+        private final DataOutputStream output;
+        private volatile boolean clientGone;
+        private volatile Integer exitStatus;
+        private volatile boolean fatalError;
+
+        Run(SocketChannel channel) {
+            // 不用 Channels.newInputStream / newOutputStream：它们读写共用 blockingLock，
+            // stdin 线程阻塞在读上时用户程序就写不出输出了
+            this.input = new DataInputStream(new BufferedInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return channel.read(ByteBuffer.wrap(b, off, len));
+                }
+            }));
+            this.output = new DataOutputStream(new BufferedOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }));
+        }
+
+        boolean serve() throws Exception {
+            String[] header = readLine().substring(4).split("\t");
+            Path cwd = Paths.get(header[0]);
+            String[] entries = header[1].split(":");
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = cwd.resolve(entries[i]).toUri().toURL();
+            }
+
+            PipedInputStream stdin = new PipedInputStream(64 * 1024);
+            PipedOutputStream stdinWriter = new PipedOutputStream(stdin);
+            Thread pump = new Thread(() -> pumpStdin(stdinWriter), "zygote-stdin");
+            pump.setDaemon(true);
+            pump.start();
+
+            Charset charset = Charset.defaultCharset();
+            PrintStream stdout = new PrintStream(new BufferedOutputStream(new FrameOutputStream('O'), 8192), true, charset);
+            PrintStream stderr = new PrintStream(new FrameOutputStream('R'), true, charset);
+            System.setIn(stdin);
+            System.setOut(stdout);
+            System.setErr(stderr);
+
+            long start = System.nanoTime();
+            int code;
+            boolean clean;
+            RunGroup group = new RunGroup(this);
+            try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+                int[] result = {0};
+                Thread main = new Thread(group, () -> result[0] = invokeMain(loader, header[2]), "main");
+                main.setContextClassLoader(loader);
+                EXIT_TRAP.group = group;
+                main.start();
+                // 和 java 命令一样：main 返回后还要等其他非守护线程都结束
+                while (exitStatus == null && !clientGone && hasLiveThreads(group)) {
+                    Thread.sleep(2);
+                }
+                EXIT_TRAP.group = null;
+                code = exitStatus != null ? exitStatus : result[0];
+                clean = !clientGone && !fatalError && !stopAll(group);
+            }
+            stdout.flush();
+            stderr.flush();
+            String exit = code + " " + String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e9);
+            try {
+                writeFrame('X', exit.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                clean = false;
+            }
+            return clean;
+        }
+
+        private int invokeMain(ClassLoader loader, String className) {
+            Method main;
+            try {
+                main = Class.forName(className, false, loader).getMethod("main", String[].class);
+            } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                System.err.println("Error: Could not find or load main class " + className);
+                return 1;
+            } catch (NoSuchMethodException e) {
+                System.err.println("Error: Main method not found in class " + className
+                        + ", please define the main method as:\n   public static void main(String[] args)");
+                return 1;
+            }
+            if (!Modifier.isStatic(main.getModifiers())) {
+                System.err.println("Error: Main method is not static in class " + className
+                        + ", please define the main method as:\n   public static void main(String[] args)");
+                return 1;
+            }
+            try {
+                main.invoke(null, (Object) new String[0]);
+                return 0;
+            } catch (InvocationTargetException e) {
+                // 去掉反射调用和 zygote 自己的栈帧，和 java 命令直接运行时打印的一样
+                Throwable cause = e.getCause();
+                StackTraceElement[] trace = cause.getStackTrace();
+                int n = trace.length;
+                while (n > 0 && isLauncherFrame(trace[n - 1])) {
+                    n--;
+                }
+                cause.setStackTrace(Arrays.copyOf(trace, n));
+                Thread.currentThread().getThreadGroup().uncaughtException(Thread.currentThread(), cause);
+                return 1;
+            } catch (IllegalAccessException e) {
+                System.err.println("Error: " + e);
+                return 1;
+            }
+        }
+
+        private static boolean isLauncherFrame(StackTraceElement frame) {
+            String name = frame.getClassName();
+            return name.startsWith("jdk.internal.reflect.") || name.startsWith("java.lang.reflect.")
+                    || name.startsWith("JavaZygote") || name.equals("java.lang.Thread");
+        }
+
+        /**
+         *  把 stdin 帧转给用户程序；stdin 结束后接着读，读到 EOF 说明客户端断开了（比如被 timeout 杀掉）
+         */
+        private void pumpStdin(PipedOutputStream writer) {
+            boolean stdinOpen = true;
+            try {
+                while (true) {
+                    int kind = input.read();
+                    if (kind == -1) {
+                        break;
+                    }
+                    byte[] data = new byte[input.readInt()];
+                    input.readFully(data);
+                    if (kind == 'E') {
+                        writer.close();
+                        stdinOpen = false;
+                    } else if (stdinOpen) {
+                        try {
+                            writer.write(data);
+                            writer.flush();
+                        } catch (IOException e) {
+                            // 用户程序已经不读 stdin 了，丢掉剩下的输入
+                            stdinOpen = false;
+                        }
+                    }
+                }
+            } catch (IOException ignore) {
+                // 连接断了
+            }
+            clientGone = true;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = input.read()) != -1 && b != '\n') {
+                line.append((char) b);
+            }
+            return new String(line.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+        }
+
+        private synchronized void writeFrame(char kind, byte[] data) throws IOException {
+            output.writeByte(kind);
+            output.writeInt(data.length);
+            output.write(data);
+            output.flush();
+        }
+
+        /**
+         *  把输出按帧写回客户端，写失败说明客户端已经断开（比如被 timeout 杀掉）
+         */
+        private class FrameOutputStream extends OutputStream {
+            private final char kind;
+
+            FrameOutputStream(char kind) {
+                this.kind = kind;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                byte[] data = new byte[len];
+                System.arraycopy(b, off, data, 0, len);
+                try {
+                    writeFrame(kind, data);
+                } catch (IOException e) {
+                    clientGone = true;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     *  用户代码所在的线程组：未捕获的异常按 JVM 默认格式打印，OOM 之后这个 JVM 就不再复用
+     */
+    private static class RunGroup extends ThreadGroup {
+        private final Run run;
+
+        RunGroup(Run run) {
+            super("run");
+            this.run = run;
+        }
+
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            if (e instanceof ExitException) {
+                return;
+            }
+            if (e instanceof VirtualMachineError) {
+                run.fatalError = true;
+            }
+            System.err.print("Exception in thread \"" + t.getName() + "\" ");
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     *  拦截用户代码里的 System.exit / Runtime.halt：记下退出码，抛异常结束调用线程
+     *  其他权限检查一律放行
+     */
+    private static class ExitTrap extends SecurityManager {
+        volatile RunGroup group;
+
+        @Override
+        public void checkPermission(Permission perm) {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+
+        @Override
+        public void checkExit(int status) {
+            RunGroup g = group;
+            if (g != null && g.parentOf(Thread.currentThread().getThreadGroup())) {
+                if (g.run.exitStatus == null) {
+                    g.run.exitStatus = status;
+                }
+                throw new ExitException();
+            }
+        }
+    }
+
+    private static class ExitException extends SecurityException {
+    }
+
+    private static boolean hasLiveThreads(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int n = group.enumerate(threads);
+        for (int i = 0; i < n; i++) {
+            if (!threads[i].isDaemon() && threads[i].isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *  强行结束线程组里剩下的线程（包括守护线程），有残留就返回 true
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean stopAll(ThreadGroup group) throws InterruptedException {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int n = group.enumerate(threads);
+        boolean leftovers = false;
+        for (int i = 0; i < n; i++) {
+            if (threads[i].isAlive()) {
+                leftovers = true;
+                threads[i].stop();
+                threads[i].join(100);
+            }
+        }
+        return leftovers;
+    }
+}
@@ -0,0 +1,166 @@
+"""Python fork-server（zygote），在池容器里作为主进程（PID 1）常驻。
+
+启动时先把常用的标准库 import 好，然后在 unix socket 上等请求。每个请求：
+  zygote --fork--> handler --fork--> runner
+runner 拿到客户端传过来的 stdin/stdout/stderr（SCM_RIGHTS），在全新的 __main__ 里执行用户脚本；
+handler 等 runner 结束，把退出码、耗时、峰值内存发回客户端。客户端先断开（比如被 timeout 杀掉）时，
+handler 把 runner 所在的整个进程组杀掉。
+每次运行都是从干净的 zygote fork 出来的，运行之间不会共享任何状态。
+
+用法：python3 pyzygote.py [socket 路径]
+"""
+import os
+import signal
+import socket
+import sys
+import time
+
+# 预先 import 的模块：fork 之后 runner 里直接就是已加载状态，不用再付 import 的开销
+PRELOAD = [
+    "array", "bisect", "collections", "copy", "dataclasses", "datetime", "decimal", "fractions",
+    "functools", "heapq", "itertools", "json", "math", "operator", "random", "re", "statistics",
+    "string", "traceback", "types", "typing",
+]
+
+SOCKET_PATH = "/run/zygote/python.sock"
+MAX_REQUEST = 64 * 1024
+
+
+def preload():
+    for name in PRELOAD:
+        try:
+            __import__(name)
+        except ImportError:
+            pass
+
+
+def run_script(path, argv):
+    """在 runner 进程里执行用户脚本，返回退出码（和 python3 script.py 的行为保持一致）。"""
+    import builtins
+    import types
+    import traceback
+    main = types.ModuleType("__main__")
+    main.__file__ = path
+    main.__builtins__ = builtins
+    sys.modules["__main__"] = main
+    sys.argv = [path] + list(argv)
+    sys.path[0] = os.path.dirname(os.path.abspath(path))
+    try:
+        with open(path, "rb") as f:
+            source = f.read()
+        exec(compile(source, path, "exec"), main.__dict__)
+        return 0
+    except SystemExit as e:
+        if e.code is None:
+            return 0
+        if isinstance(e.code, int):
+            return e.code & 0xff
+        print(e.code, file=sys.stderr)
+        return 1
+    except BaseException as e:
+        # 去掉 zygote 自己的栈帧，只留用户脚本里的
+        tb = e.__traceback__
+        while tb is not None and tb.tb_frame.f_code.co_filename != path:
+            tb = tb.tb_next
+        traceback.print_exception(type(e), e, tb)
+        return 1
+
+
+def runner(fds, request):
+    os.setsid()
+    for target, fd in enumerate(fds):
+        os.dup2(fd, target)
+        os.close(fd)
+    signal.signal(signal.SIGTERM, signal.SIG_DFL)
+    signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+    code = 1
+    try:
+        os.chdir(request["cwd"])
+        code = run_script(request["script"], request.get("args", []))
+    finally:
+        try:
+            import atexit
+            atexit._run_exitfuncs()
+            sys.stdout.flush()
+            sys.stderr.flush()
+        except BaseException:
+            pass
+        os._exit(code)
+
+
+def wait_runner(conn, pid):
+    """等 runner 结束；客户端断开时杀掉 runner 的进程组。返回 (退出码, rusage)。"""
+    import select
+    pidfd = os.pidfd_open(pid) if hasattr(os, "pidfd_open") else None
+    watch = [conn] + ([pidfd] if pidfd is not None else [])
+    while True:
+        ready, _, _ = select.select(watch, [], [], None if pidfd is not None else 0.01)
+        # 客户端不会再发数据，读到 EOF 就是已经断开
+        if conn in ready and not conn.recv(4096):
+            try:
+                os.killpg(pid, signal.SIGKILL)
+            except OSError:
+                pass
+            watch = [pidfd] if pidfd is not None else []
+        _, status, rusage = os.wait4(pid, os.WNOHANG)
+        if _ == pid:
+            if os.WIFSIGNALED(status):
+                return 128 + os.WTERMSIG(status), rusage
+            return os.WEXITSTATUS(status), rusage
+
+
+def handle(conn):
+    import json
+    signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+    msg, fds, _, _ = socket.recv_fds(conn, MAX_REQUEST, 3)
+    if len(fds) != 3:
+        os._exit(1)
+    request = json.loads(msg.decode("utf-8"))
+    start = time.monotonic()
+    sys.stdout.flush()
+    sys.stderr.flush()
+    pid = os.fork()
+    if pid == 0:
+        conn.close()
+        runner(fds, request)
+    for fd in fds:
+        os.close(fd)
+    code, rusage = wait_runner(conn, pid)
+    elapsed = time.monotonic() - start
+    try:
+        # ru_maxrss 在 Linux 上单位是 KB
+        conn.sendall(("EXIT %d %.3f %d\n" % (code, elapsed, rusage.ru_maxrss)).encode())
+    except OSError:
+        pass
+    os._exit(0)
+
+
+def main():
+    path = sys.argv[1] if len(sys.argv) > 1 else SOCKET_PATH
+    preload()
+    os.makedirs(os.path.dirname(path), exist_ok=True)
+    try:
+        os.unlink(path)
+    except FileNotFoundError:
+        pass
+    server = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    server.bind(path)
+    server.listen(64)
+    # 作为 PID 1 时：handler 和被过继过来的孤儿进程都自动回收，不留僵尸；docker stop 时直接退出
+    signal.signal(signal.SIGCHLD, signal.SIG_IGN)
+    signal.signal(signal.SIGTERM, lambda *_: os._exit(0))
+    while True:
+        conn, _ = server.accept()
+        sys.stdout.flush()
+        sys.stderr.flush()
+        if os.fork() == 0:
+            server.close()
+            try:
+                handle(conn)
+            finally:
+                os._exit(1)
+        conn.close()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,275 @@
+/*
+ * zygote 客户端：沙箱服务 exec 的就是它，用法和直接运行程序一样，退出码也一样
+ * 用 C 写是为了让客户端自己几乎没有启动开销（换成 python 脚本的话，光解释器启动就把 zygote 省下的时间吃掉了）
+ *
+ *   zyrun python <socket> script.py [args...]
+ *       把自己的 stdin/stdout/stderr 交给 Python zygote（SCM_RIGHTS），等它返回 "EXIT 退出码 秒数 峰值RSS"
+ *   zyrun java <socket> <classpath> <main class>
+ *       连常驻 JVM，stdin / 输出经 socket 按帧转发（1 字节类型 + 4 字节大端长度 + 数据）：
+ *       发 I = stdin 数据，E = stdin 结束；收 O = stdout，R = stderr，X = 结束（"退出码 秒数"）
+ *
+ * zygote 不在（镜像太旧、主进程挂了）时直接 exec 冷启动的 python3 / java，调用方不用关心
+ * 设置了环境变量 ZYGOTE_STAT 时，把 "秒数,峰值RSS(KB)" 写到这个文件（和 GNU time -f %e,%M 的格式一样）
+ */
+#include <errno.h>
+#include <poll.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/socket.h>
+#include <sys/un.h>
+#include <unistd.h>
+
+#define CDS_ARCHIVE "/opt/zygote/jdk.jsa"
+#define MAX_REQUEST 65536
+
+static int connect_to(const char *path) {
+    struct sockaddr_un addr;
+    int fd = socket(AF_UNIX, SOCK_STREAM | SOCK_CLOEXEC, 0);
+    if (fd < 0 || strlen(path) >= sizeof(addr.sun_path)) {
+        return -1;
+    }
+    memset(&addr, 0, sizeof(addr));
+    addr.sun_family = AF_UNIX;
+    strcpy(addr.sun_path, path);
+    if (connect(fd, (struct sockaddr *) &addr, sizeof(addr)) < 0) {
+        close(fd);
+        return -1;
+    }
+    return fd;
+}
+
+static int write_all(int fd, const char *data, size_t len) {
+    while (len > 0) {
+        ssize_t n = write(fd, data, len);
+        if (n < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            return -1;
+        }
+        data += n;
+        len -= (size_t) n;
+    }
+    return 0;
+}
+
+static void write_stat(const char *elapsed, const char *maxrss) {
+    const char *path = getenv("ZYGOTE_STAT");
+    FILE *f;
+    if (path == NULL || (f = fopen(path, "w")) == NULL) {
+        return;
+    }
+    fprintf(f, "%s,%s\n", elapsed, maxrss);
+    fclose(f);
+}
+
+/* 追加一个 JSON 字符串，返回新的长度，放不下返回 -1 */
+static int append_json(char *buf, int pos, const char *s) {
+    if (pos < 0 || pos + 2 >= MAX_REQUEST) {
+        return -1;
+    }
+    buf[pos++] = '"';
+    for (; *s; s++) {
+        unsigned char c = (unsigned char) *s;
+        if (pos + 8 >= MAX_REQUEST) {
+            return -1;
+        }
+        if (c == '"' || c == '\\') {
+            buf[pos++] = '\\';
+            buf[pos++] = (char) c;
+        } else if (c < 0x20) {
+            pos += sprintf(buf + pos, "\\u%04x", c);
+        } else {
+            buf[pos++] = (char) c;
+        }
+    }
+    buf[pos++] = '"';
+    return pos;
+}
+
+static int run_python(const char *path, int argc, char **argv) {
+    static char request[MAX_REQUEST];
+    char cwd[4096];
+    char reply[256];
+    size_t got = 0;
+    int fd = connect_to(path);
+    if (fd < 0 || getcwd(cwd, sizeof(cwd)) == NULL) {
+        char **args = calloc((size_t) argc + 2, sizeof(char *));
+        args[0] = "python3";
+        memcpy(args + 1, argv, (size_t) argc * sizeof(char *));
+        execvp("python3", args);
+        perror("python3");
+        return 127;
+    }
+
+    int pos = sprintf(request, "{\"cwd\":");
+    pos = append_json(request, pos, cwd);
+    pos = pos < 0 ? -1 : pos + sprintf(request + pos, ",\"script\":");
+    pos = append_json(request, pos, argv[0]);
+    pos = pos < 0 ? -1 : pos + sprintf(request + pos, ",\"args\":[");
+    for (int i = 1; i < argc && pos >= 0; i++) {
+        if (i > 1) {
+            request[pos++] = ',';
+        }
+        pos = append_json(request, pos, argv[i]);
+    }
+    if (pos < 0 || pos + 3 >= MAX_REQUEST) {
+        fprintf(stderr, "zyrun: arguments too long\n");
+        return 1;
+    }
+    pos += sprintf(request + pos, "]}");
+
+    int fds[3] = {0, 1, 2};
+    char control[CMSG_SPACE(sizeof(fds))];
+    struct iovec iov = {request, (size_t) pos};
+    struct msghdr msg;
+    memset(&msg, 0, sizeof(msg));
+    memset(control, 0, sizeof(control));
+    msg.msg_iov = &iov;
+    msg.msg_iovlen = 1;
+    msg.msg_control = control;
+    msg.msg_controllen = sizeof(control);
+    struct cmsghdr *cmsg = CMSG_FIRSTHDR(&msg);
+    cmsg->cmsg_level = SOL_SOCKET;
+    cmsg->cmsg_type = SCM_RIGHTS;
+    cmsg->cmsg_len = CMSG_LEN(sizeof(fds));
+    memcpy(CMSG_DATA(cmsg), fds, sizeof(fds));
+    if (sendmsg(fd, &msg, 0) < 0) {
+        perror("zyrun: sendmsg");
+        return 1;
+    }
+
+    while (got < sizeof(reply) - 1) {
+        ssize_t n = read(fd, reply + got, sizeof(reply) - 1 - got);
+        if (n < 0 && errno == EINTR) {
+            continue;
+        }
+        if (n <= 0) {
+            break;
+        }
+        got += (size_t) n;
+        if (memchr(reply, '\n', got) != NULL) {
+            break;
+        }
+    }
+    reply[got] = '\0';
+    int code;
+    char elapsed[64], maxrss[64];
+    if (sscanf(reply, "EXIT %d %63s %63s", &code, elapsed, maxrss) != 3) {
+        fprintf(stderr, "zyrun: connection to zygote lost\n");
+        return 1;
+    }
+    write_stat(elapsed, maxrss);
+    return code;
+}
+
+static void java_cold(const char *classpath, const char *main_class) {
+    if (access(CDS_ARCHIVE, R_OK) == 0) {
+        execlp("java", "java", "-XX:SharedArchiveFile=" CDS_ARCHIVE, "-cp", classpath, main_class, (char *) NULL);
+    } else {
+        execlp("java", "java", "-cp", classpath, main_class, (char *) NULL);
+    }
+    perror("java");
+}
+
+static int send_frame(int fd, char kind, const char *data, uint32_t len) {
+    char header[5] = {kind, (char) (len >> 24), (char) (len >> 16), (char) (len >> 8), (char) len};
+    return write_all(fd, header, 5) < 0 || write_all(fd, data, len) < 0 ? -1 : 0;
+}
+
+static int run_java(const char *path, const char *classpath, const char *main_class) {
+    static char buffer[1 << 17];
+    static char input[1 << 16];
+    char cwd[4096];
+    size_t buffered = 0;
+    int fd = connect_to(path);
+    if (fd < 0 || getcwd(cwd, sizeof(cwd)) == NULL) {
+        java_cold(classpath, main_class);
+        return 127;
+    }
+    int header = snprintf(buffer, sizeof(buffer), "RUN %s\t%s\t%s\n", cwd, classpath, main_class);
+    if (write_all(fd, buffer, (size_t) header) < 0) {
+        perror("zyrun: write");
+        return 1;
+    }
+
+    int stdin_open = 1;
+    for (;;) {
+        struct pollfd fds[2] = {{fd, POLLIN, 0}, {0, POLLIN, 0}};
+        if (poll(fds, stdin_open ? 2 : 1, -1) < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            return 1;
+        }
+        if (stdin_open && (fds[1].revents & (POLLIN | POLLHUP | POLLERR))) {
+            ssize_t n = read(0, input, sizeof(input));
+            if (n > 0) {
+                if (send_frame(fd, 'I', input, (uint32_t) n) < 0) {
+                    stdin_open = 0;
+                }
+            } else if (n == 0 || errno != EINTR) {
+                send_frame(fd, 'E', "", 0);
+                stdin_open = 0;
+            }
+        }
+        if (fds[0].revents & (POLLIN | POLLHUP | POLLERR)) {
+            ssize_t n = read(fd, buffer + buffered, sizeof(buffer) - buffered);
+            if (n < 0 && errno == EINTR) {
+                continue;
+            }
+            if (n <= 0) {
+                fprintf(stderr, "zyrun: connection to zygote lost\n");
+                return 1;
+            }
+            buffered += (size_t) n;
+            size_t pos = 0;
+            while (buffered - pos >= 5) {
+                unsigned char *h = (unsigned char *) buffer + pos;
+                uint32_t len = ((uint32_t) h[1] << 24) | ((uint32_t) h[2] << 16) | ((uint32_t) h[3] << 8) | h[4];
+                if (len > sizeof(buffer) - 5) {
+                    fprintf(stderr, "zyrun: bad frame from zygote\n");
+                    return 1;
+                }
+                if (buffered - pos < 5 + len) {
+                    break;
+                }
+                char *payload = buffer + pos + 5;
+                if (h[0] == 'O') {
+                    write_all(1, payload, len);
+                } else if (h[0] == 'R') {
+                    write_all(2, payload, len);
+                } else if (h[0] == 'X') {
+                    int code;
+                    char exit_line[128], elapsed[64];
+                    size_t n = len < sizeof(exit_line) - 1 ? len : sizeof(exit_line) - 1;
+                    memcpy(exit_line, payload, n);
+                    exit_line[n] = '\0';
+                    if (sscanf(exit_line, "%d %63s", &code, elapsed) != 2) {
+                        return 1;
+                    }
+                    /* 常驻 JVM 里测不到单次运行的内存 */
+                    write_stat(elapsed, "-1");
+                    return code;
+                }
+                pos += 5 + len;
+            }
+            memmove(buffer, buffer + pos, buffered - pos);
+            buffered -= pos;
+        }
+    }
+}
+
+int main(int argc, char **argv) {
+    if (argc >= 4 && strcmp(argv[1], "python") == 0) {
+        return run_python(argv[2], argc - 3, argv + 3);
+    }
+    if (argc == 5 && strcmp(argv[1], "java") == 0) {
+        return run_java(argv[2], argv[3], argv[4]);
+    }
+    fprintf(stderr, "usage: zyrun python <socket> script.py [args...]\n"
+                    "       zyrun java <socket> <classpath> <main class>\n");
+    return 2;
+}